@@ -0,0 +1,334 @@
+package com.tbg.mapbox_plugin;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.plugins.annotation.Annotation;
+import com.mapbox.mapboxsdk.plugins.annotation.Circle;
+import com.mapbox.mapboxsdk.plugins.annotation.Line;
+import com.mapbox.mapboxsdk.plugins.annotation.OnCircleDragListener;
+import com.mapbox.mapboxsdk.plugins.annotation.OnLineDragListener;
+import com.mapbox.mapboxsdk.plugins.annotation.OnSymbolDragListener;
+import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the symbols, lines and circles of a map, kept in an {@link RTree}
+ * of their geometries in spherical mercator coordinates.
+ *
+ * Symbols and circles are indexed as points, lines by their bounding box and, for
+ * nearest queries, by their segments.
+ */
+class AnnotationIndex {
+  static final int SYMBOL = 0;
+  static final int LINE = 1;
+  static final int CIRCLE = 2;
+  private static final String[] TYPE_NAMES = {"symbol", "line", "circle"};
+  private static final int ALL_TYPES = (1 << SYMBOL) | (1 << LINE) | (1 << CIRCLE);
+  private static final double EARTH_CIRCUMFERENCE = 40075016.686;
+
+  private static final class Item extends RTree.Entry {
+    final int type;
+    final long id;
+    // interleaved projected vertices of a line, null for a point
+    final double[] vertices;
+
+    Item(int type, long id, double[] vertices) {
+      this.type = type;
+      this.id = id;
+      this.vertices = vertices;
+    }
+
+    @Override
+    double distanceSq(double x, double y) {
+      if (vertices == null || vertices.length < 4) {
+        return super.distanceSq(x, y);
+      }
+      double min = Double.POSITIVE_INFINITY;
+      for (int i = 2; i < vertices.length; i += 2) {
+        min = Math.min(min, segmentDistanceSq(x, y,
+          vertices[i - 2], vertices[i - 1], vertices[i], vertices[i + 1]));
+      }
+      return min;
+    }
+  }
+
+  private final RTree tree = new RTree();
+  private final LongObjectMap<Item> symbolItems = new LongObjectMap<>();
+  private final LongObjectMap<Item> lineItems = new LongObjectMap<>();
+  private final LongObjectMap<Item> circleItems = new LongObjectMap<>();
+
+  /** Indexes the annotation, replacing its previous geometry. */
+  void put(Annotation annotation) {
+    tree.insert(replace(annotation));
+  }
+
+  /** Indexes many annotations, bulk loading them into the tree. */
+  void putAll(List<? extends Annotation> annotations) {
+    final List<Item> newItems = new ArrayList<>(annotations.size());
+    for (Annotation annotation : annotations) {
+      newItems.add(replace(annotation));
+    }
+    tree.load(newItems);
+  }
+
+  /** Indexes a point under the given type and id, replacing its previous geometry. */
+  void putPoint(int type, long id, LatLng latLng) {
+    final Item item = new Item(type, id, null);
+    extend(item, ClusterIndex.lngX(latLng.getLongitude()), ClusterIndex.latY(latLng.getLatitude()));
+    final Item previous = items(type).put(id, item);
+    if (previous != null) {
+      tree.remove(previous);
+    }
+    tree.insert(item);
+  }
+
+  void remove(int type, long id) {
+    final Item item = items(type).remove(id);
+    if (item != null) {
+      tree.remove(item);
+    }
+  }
+
+  void clear() {
+    tree.clear();
+    symbolItems.clear();
+    lineItems.clear();
+    circleItems.clear();
+  }
+
+  /**
+   * Returns the ids of the annotations of the given types intersecting the bounds, by
+   * plural type name. The bounds may cross the antimeridian when west is east of east.
+   */
+  Map<String, Object> queryBox(double south, double west, double north, double east, int typeMask) {
+    final List<RTree.Entry> found = new ArrayList<>();
+    final double minY = ClusterIndex.latY(north);
+    final double maxY = ClusterIndex.latY(south);
+    if (west > east) {
+      tree.search(ClusterIndex.lngX(west), minY, 1, maxY, found);
+      tree.search(0, minY, ClusterIndex.lngX(east), maxY, found);
+    } else {
+      tree.search(ClusterIndex.lngX(west), minY, ClusterIndex.lngX(east), maxY, found);
+    }
+    final List<List<String>> idsByType = new ArrayList<>(TYPE_NAMES.length);
+    for (int type = 0; type < TYPE_NAMES.length; type++) {
+      idsByType.add(new ArrayList<String>());
+    }
+    for (RTree.Entry entry : found) {
+      final Item item = (Item) entry;
+      if ((typeMask & (1 << item.type)) != 0) {
+        idsByType.get(item.type).add(String.valueOf(item.id));
+      }
+    }
+    final Map<String, Object> reply = new HashMap<>(TYPE_NAMES.length);
+    for (int type = 0; type < TYPE_NAMES.length; type++) {
+      reply.put(TYPE_NAMES[type] + "s", idsByType.get(type));
+    }
+    return reply;
+  }
+
+  /** Returns the ids of the items of the given type intersecting the bounds. */
+  long[] queryIds(int type, double south, double west, double north, double east) {
+    final List<RTree.Entry> found = new ArrayList<>();
+    tree.search(ClusterIndex.lngX(west), ClusterIndex.latY(north),
+      ClusterIndex.lngX(east), ClusterIndex.latY(south), found);
+    final long[] ids = new long[found.size()];
+    int count = 0;
+    for (RTree.Entry entry : found) {
+      final Item item = (Item) entry;
+      if (item.type == type) {
+        ids[count++] = item.id;
+      }
+    }
+    return count == ids.length ? ids : Arrays.copyOf(ids, count);
+  }
+
+  /**
+   * Returns up to {@code count} annotations of the given types nearest to the point and
+   * within {@code maxDistance} meters of it, closest first, each as its type, id and
+   * approximate distance in meters.
+   */
+  List<Object> nearest(LatLng latLng, int count, double maxDistance, final int typeMask) {
+    final double metersPerUnit = EARTH_CIRCUMFERENCE * Math.cos(Math.toRadians(latLng.getLatitude()));
+    final double x = ClusterIndex.lngX(latLng.getLongitude());
+    final double y = ClusterIndex.latY(latLng.getLatitude());
+    final List<RTree.Entry> found = tree.nearest(x, y, count, maxDistance / metersPerUnit,
+      typeMask == ALL_TYPES ? null : new RTree.Filter() {
+        @Override
+        public boolean accept(RTree.Entry item) {
+          return (typeMask & (1 << ((Item) item).type)) != 0;
+        }
+      });
+    final List<Object> reply = new ArrayList<>(found.size());
+    for (RTree.Entry entry : found) {
+      final Item item = (Item) entry;
+      final Map<String, Object> data = new HashMap<>(3);
+      data.put("type", TYPE_NAMES[item.type]);
+      data.put("id", String.valueOf(item.id));
+      data.put("distance", Math.sqrt(item.distanceSq(x, y)) * metersPerUnit);
+      reply.add(data);
+    }
+    return reply;
+  }
+
+  /** Returns the type mask for a list of type names, or for all types when null. */
+  static int toTypeMask(List<?> typeNames) {
+    if (typeNames == null) {
+      return ALL_TYPES;
+    }
+    int mask = 0;
+    for (Object typeName : typeNames) {
+      boolean known = false;
+      for (int type = 0; type < TYPE_NAMES.length; type++) {
+        if (TYPE_NAMES[type].equals(typeName)) {
+          mask |= 1 << type;
+          known = true;
+        }
+      }
+      if (!known) {
+        throw new IllegalArgumentException("Unknown annotation type: " + typeName);
+      }
+    }
+    return mask;
+  }
+
+  OnSymbolDragListener symbolDragListener() {
+    return new OnSymbolDragListener() {
+      @Override
+      public void onAnnotationDragStarted(Symbol symbol) {
+      }
+
+      @Override
+      public void onAnnotationDrag(Symbol symbol) {
+      }
+
+      @Override
+      public void onAnnotationDragFinished(Symbol symbol) {
+        // symbols materialized from virtual specs are indexed under their virtual ids,
+        // which the virtual symbols controller updates
+        if (symbolItems.containsKey(symbol.getId())) {
+          put(symbol);
+        }
+      }
+    };
+  }
+
+  OnLineDragListener lineDragListener() {
+    return new OnLineDragListener() {
+      @Override
+      public void onAnnotationDragStarted(Line line) {
+      }
+
+      @Override
+      public void onAnnotationDrag(Line line) {
+      }
+
+      @Override
+      public void onAnnotationDragFinished(Line line) {
+        if (lineItems.containsKey(line.getId())) {
+          put(line);
+        }
+      }
+    };
+  }
+
+  OnCircleDragListener circleDragListener() {
+    return new OnCircleDragListener() {
+      @Override
+      public void onAnnotationDragStarted(Circle circle) {
+      }
+
+      @Override
+      public void onAnnotationDrag(Circle circle) {
+      }
+
+      @Override
+      public void onAnnotationDragFinished(Circle circle) {
+        if (circleItems.containsKey(circle.getId())) {
+          put(circle);
+        }
+      }
+    };
+  }
+
+  private LongObjectMap<Item> items(int type) {
+    switch (type) {
+      case SYMBOL:
+        return symbolItems;
+      case LINE:
+        return lineItems;
+      default:
+        return circleItems;
+    }
+  }
+
+  /** Removes the previous item of the annotation from the tree and returns a new one. */
+  private Item replace(Annotation annotation) {
+    final Item item = toItem(annotation);
+    final Item previous = items(item.type).put(item.id, item);
+    if (previous != null) {
+      tree.remove(previous);
+    }
+    return item;
+  }
+
+  private static Item toItem(Annotation annotation) {
+    final Item item;
+    if (annotation instanceof Line) {
+      final List<LatLng> latLngs = ((Line) annotation).getLatLngs();
+      final double[] vertices = new double[latLngs.size() * 2];
+      for (int i = 0; i < latLngs.size(); i++) {
+        vertices[2 * i] = ClusterIndex.lngX(latLngs.get(i).getLongitude());
+        vertices[2 * i + 1] = ClusterIndex.latY(latLngs.get(i).getLatitude());
+      }
+      item = new Item(LINE, annotation.getId(), vertices);
+      for (int i = 0; i < vertices.length; i += 2) {
+        extend(item, vertices[i], vertices[i + 1]);
+      }
+    } else {
+      final LatLng latLng;
+      if (annotation instanceof Symbol) {
+        item = new Item(SYMBOL, annotation.getId(), null);
+        latLng = ((Symbol) annotation).getLatLng();
+      } else if (annotation instanceof Circle) {
+        item = new Item(CIRCLE, annotation.getId(), null);
+        latLng = ((Circle) annotation).getLatLng();
+      } else {
+        throw new IllegalArgumentException("Unknown annotation: " + annotation);
+      }
+      extend(item, ClusterIndex.lngX(latLng.getLongitude()), ClusterIndex.latY(latLng.getLatitude()));
+    }
+    return item;
+  }
+
+  private static void extend(RTree.Entry entry, double x, double y) {
+    entry.minX = Math.min(entry.minX, x);
+    entry.minY = Math.min(entry.minY, y);
+    entry.maxX = Math.max(entry.maxX, x);
+    entry.maxY = Math.max(entry.maxY, y);
+  }
+
+  static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double x = ax;
+    double y = ay;
+    if (dx != 0 || dy != 0) {
+      final double t = ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy);
+      if (t > 1) {
+        x = bx;
+        y = by;
+      } else if (t > 0) {
+        x += dx * t;
+        y += dy * t;
+      }
+    }
+    dx = px - x;
+    dy = py - y;
+    return dx * dx + dy * dy;
+  }
+}
@@ -0,0 +1,63 @@
+package com.tbg.mapbox_plugin;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs plugin work that does not need the platform thread, such as decoding and
+ * serialization, and posts the outcome back to it.
+ *
+ * Short tasks share a small pool; long file copies get their own thread so they never
+ * occupy the workers the short tasks wait for. The queues are unbounded, so a burst of
+ * tasks waits for a worker instead of running on the platform thread or being dropped,
+ * which would leave its reply pending forever.
+ */
+final class BackgroundTasks {
+  private static final int THREAD_COUNT = 2;
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private static final ExecutorService executor = newExecutor(THREAD_COUNT, "mapbox_plugin-");
+  private static final ExecutorService longTaskExecutor = newExecutor(1, "mapbox_plugin-io-");
+
+  private BackgroundTasks() {
+  }
+
+  static void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /** Runs a task taking seconds, such as copying a tiles database, after earlier ones. */
+  static void executeLong(Runnable task) {
+    longTaskExecutor.execute(task);
+  }
+
+  static void runOnMainThread(Runnable task) {
+    mainHandler.post(task);
+  }
+
+  private static ExecutorService newExecutor(int threadCount, final String namePrefix) {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      threadCount, threadCount, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          final Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+          thread.setDaemon(true);
+          thread.setPriority(Thread.NORM_PRIORITY - 1);
+          return thread;
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
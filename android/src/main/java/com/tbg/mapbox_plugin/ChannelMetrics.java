@@ -0,0 +1,221 @@
+package com.tbg.mapbox_plugin;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Call and event statistics of the method channel of a map.
+ *
+ * For each method called from Flutter it counts calls and errors, sums a cheap estimate
+ * of the encoded size of the arguments and keeps a histogram of the time from the call
+ * to its reply, which includes the work finished on a background thread. Outbound
+ * events are counted by method. Latencies go into logarithmic buckets, four per power
+ * of two microseconds, so a percentile is accurate within 25% and recording costs a
+ * few array updates; all of it happens on the platform thread.
+ */
+final class ChannelMetrics {
+  // buckets below 4 microseconds are exact, the last one takes every call over a minute
+  private static final int BUCKET_COUNT = 100;
+  // assumed encoded size of an entry of a nested list or map, that of a double
+  private static final long NESTED_ENTRY_BYTES = 9;
+
+  private static final class CallStats {
+    final long[] buckets = new long[BUCKET_COUNT];
+    long count;
+    long errors;
+    long maxMicros;
+    long argumentBytes;
+    long maxArgumentBytes;
+  }
+
+  private final Map<String, CallStats> calls = new HashMap<>();
+  private final Map<String, long[]> events = new HashMap<>();
+  private long resetTime = SystemClock.elapsedRealtime();
+
+  /**
+   * Records the arguments of a call and returns the result to reply with, which
+   * records the latency of the call once replied.
+   */
+  MethodChannel.Result track(final MethodCall call, final MethodChannel.Result result) {
+    final CallStats stats = callStats(call.method);
+    final long argumentBytes = estimateSize(call.arguments);
+    stats.argumentBytes += argumentBytes;
+    stats.maxArgumentBytes = Math.max(stats.maxArgumentBytes, argumentBytes);
+    final long startNanos = System.nanoTime();
+    return new MethodChannel.Result() {
+      @Override
+      public void success(Object o) {
+        recordReply(stats, startNanos, false);
+        result.success(o);
+      }
+
+      @Override
+      public void error(String code, String message, Object details) {
+        recordReply(stats, startNanos, true);
+        result.error(code, message, details);
+      }
+
+      @Override
+      public void notImplemented() {
+        recordReply(stats, startNanos, true);
+        result.notImplemented();
+      }
+    };
+  }
+
+  /** Records a call that threw instead of replying; the channel replies with an error. */
+  void recordFailure(MethodCall call, long startNanos) {
+    recordReply(callStats(call.method), startNanos, true);
+  }
+
+  void recordEvent(String method) {
+    final long[] count = events.get(method);
+    if (count == null) {
+      events.put(method, new long[] {1});
+    } else {
+      count[0]++;
+    }
+  }
+
+  void reset() {
+    calls.clear();
+    events.clear();
+    resetTime = SystemClock.elapsedRealtime();
+  }
+
+  /**
+   * Returns the statistics by method name, with latencies in milliseconds, and the
+   * time covered since creation or the last reset.
+   */
+  Map<String, Object> toMap() {
+    final Map<String, Object> callsData = new HashMap<>(calls.size());
+    for (Map.Entry<String, CallStats> entry : calls.entrySet()) {
+      final CallStats stats = entry.getValue();
+      final Map<String, Object> data = new HashMap<>(9);
+      data.put("count", stats.count);
+      data.put("errors", stats.errors);
+      data.put("p50", percentileMillis(stats, 0.50));
+      data.put("p95", percentileMillis(stats, 0.95));
+      data.put("p99", percentileMillis(stats, 0.99));
+      data.put("max", stats.maxMicros / 1000.0);
+      data.put("argumentBytes", stats.argumentBytes);
+      data.put("maxArgumentBytes", stats.maxArgumentBytes);
+      callsData.put(entry.getKey(), data);
+    }
+    final Map<String, Object> eventsData = new HashMap<>(events.size());
+    for (Map.Entry<String, long[]> entry : events.entrySet()) {
+      eventsData.put(entry.getKey(), entry.getValue()[0]);
+    }
+    final Map<String, Object> metrics = new HashMap<>(3);
+    metrics.put("calls", callsData);
+    metrics.put("events", eventsData);
+    metrics.put("durationMillis", SystemClock.elapsedRealtime() - resetTime);
+    return metrics;
+  }
+
+  private CallStats callStats(String method) {
+    CallStats stats = calls.get(method);
+    if (stats == null) {
+      stats = new CallStats();
+      calls.put(method, stats);
+    }
+    return stats;
+  }
+
+  private static void recordReply(CallStats stats, long startNanos, boolean error) {
+    final long micros = (System.nanoTime() - startNanos) / 1000;
+    stats.count++;
+    if (error) {
+      stats.errors++;
+    }
+    stats.maxMicros = Math.max(stats.maxMicros, micros);
+    stats.buckets[bucketOf(micros)]++;
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < 4) {
+      return (int) Math.max(micros, 0);
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    final int sub = (int) (micros >>> (exponent - 2)) & 3;
+    return Math.min(4 * (exponent - 1) + sub, BUCKET_COUNT - 1);
+  }
+
+  /** Returns the exclusive upper bound of a bucket, in microseconds. */
+  static long bucketUpperBound(int bucket) {
+    if (bucket < 4) {
+      return bucket + 1;
+    }
+    return (long) (5 + bucket % 4) << (bucket / 4 - 1);
+  }
+
+  private static double percentileMillis(CallStats stats, double percentile) {
+    if (stats.count == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(percentile * stats.count);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += stats.buckets[bucket];
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(bucket), stats.maxMicros) / 1000.0;
+      }
+    }
+    return stats.maxMicros / 1000.0;
+  }
+
+  /**
+   * Approximates the size of a value in the standard message codec. Only the value and
+   * the direct entries of a list or map are inspected, so estimating a large argument
+   * costs a single pass over its top level; nested lists and maps are sized from their
+   * entry count.
+   */
+  static long estimateSize(Object value) {
+    if (value instanceof List) {
+      long size = 2;
+      for (Object element : (List<?>) value) {
+        size += shallowSize(element);
+      }
+      return size;
+    } else if (value instanceof Map) {
+      long size = 2;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += shallowSize(entry.getKey()) + shallowSize(entry.getValue());
+      }
+      return size;
+    }
+    return shallowSize(value);
+  }
+
+  private static long shallowSize(Object value) {
+    if (value == null || value instanceof Boolean) {
+      return 1;
+    } else if (value instanceof Integer) {
+      return 5;
+    } else if (value instanceof Number) {
+      return 9;
+    } else if (value instanceof String) {
+      // exact for ASCII, which is most of the strings sent to the map
+      return 2 + ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return 2 + ((byte[]) value).length;
+    } else if (value instanceof int[]) {
+      return 2 + 4L * ((int[]) value).length;
+    } else if (value instanceof long[]) {
+      return 2 + 8L * ((long[]) value).length;
+    } else if (value instanceof double[]) {
+      return 2 + 8L * ((double[]) value).length;
+    } else if (value instanceof List) {
+      return 2 + NESTED_ENTRY_BYTES * ((List<?>) value).size();
+    } else if (value instanceof Map) {
+      return 2 + 2 * NESTED_ENTRY_BYTES * ((Map<?, ?>) value).size();
+    }
+    return 1;
+  }
+}
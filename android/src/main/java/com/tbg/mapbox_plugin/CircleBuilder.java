@@ -25,6 +25,10 @@ class CircleBuilder implements CircleOptionsSink {
     return circleManager.create(circleOptions);
   }
 
+  CircleOptions getCircleOptions() {
+    return circleOptions;
+  }
+
   @Override
   public void setCircleRadius(float circleRadius) {
     circleOptions.withCircleRadius(circleRadius);
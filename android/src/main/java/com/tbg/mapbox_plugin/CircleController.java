@@ -31,6 +31,10 @@ class CircleController implements CircleOptionsSink {
     return consumeTapEvents;
   }
 
+  Circle getCircle() {
+    return circle;
+  }
+
   void remove(CircleManager circleManager) {
     circleManager.delete(circle);
   }
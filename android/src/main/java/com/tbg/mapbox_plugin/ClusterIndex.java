@@ -0,0 +1,270 @@
+package com.tbg.mapbox_plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical point clustering in the manner of supercluster.
+ *
+ * Points are projected to spherical mercator once, then clustered greedily from the
+ * max zoom down to the min zoom; each integer zoom keeps its own {@link KDBush} over
+ * the clusters and points visible at that zoom, so a viewport query is a single range
+ * search. Cluster ids encode the zoom and position of their origin, which makes
+ * expansion and leaf queries cheap.
+ */
+class ClusterIndex {
+  private static final int MIN_POINTS = 2;
+
+  /** A point or cluster at one zoom level, coordinates in mercator [0, 1]. */
+  static final class Node {
+    final double x;
+    final double y;
+    // zoom at which the node was last visited while clustering
+    int zoom = Integer.MAX_VALUE;
+    // index of the original point, or -1 for a cluster
+    final int index;
+    // cluster id, or -1 for an original point
+    final int id;
+    int parentId = -1;
+    final int numPoints;
+
+    Node(double x, double y, int index, int id, int numPoints) {
+      this.x = x;
+      this.y = y;
+      this.index = index;
+      this.id = id;
+      this.numPoints = numPoints;
+    }
+
+    boolean isCluster() {
+      return id != -1;
+    }
+
+    double longitude() {
+      return xLng(x);
+    }
+
+    double latitude() {
+      return yLat(y);
+    }
+  }
+
+  private final int minZoom;
+  private final int maxZoom;
+  private final double radius;
+  private final double extent;
+  private final int pointCount;
+  private final KDBush[] trees;
+  private final List<List<Node>> nodes;
+
+  /**
+   * Builds the index for {@code count} points given as interleaved latitude and
+   * longitude pairs. {@code radius} is the cluster radius in pixels of a tile of
+   * {@code extent} pixels.
+   */
+  ClusterIndex(double[] latLngs, int count, int minZoom, int maxZoom, double radius, double extent) {
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    this.radius = radius;
+    this.extent = extent;
+    this.pointCount = count;
+    this.trees = new KDBush[maxZoom + 2];
+    this.nodes = new ArrayList<>(maxZoom + 2);
+    for (int z = 0; z < maxZoom + 2; z++) {
+      nodes.add(null);
+    }
+
+    List<Node> clusters = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      clusters.add(new Node(lngX(latLngs[2 * i + 1]), latY(latLngs[2 * i]), i, -1, 1));
+    }
+    index(maxZoom + 1, clusters);
+    for (int z = maxZoom; z >= minZoom; z--) {
+      clusters = cluster(clusters, z);
+      index(z, clusters);
+    }
+  }
+
+  /**
+   * Returns the clusters and points of the zoom level for {@code zoom} inside the
+   * given bounds, which may cross the antimeridian when west is east of east.
+   */
+  List<Node> getClusters(double west, double south, double east, double north, double zoom) {
+    double minLng = ((west + 180) % 360 + 360) % 360 - 180;
+    final double minLat = Math.max(-90, Math.min(90, south));
+    double maxLng = east == 180 ? 180 : ((east + 180) % 360 + 360) % 360 - 180;
+    final double maxLat = Math.max(-90, Math.min(90, north));
+
+    if (east - west >= 360) {
+      minLng = -180;
+      maxLng = 180;
+    } else if (minLng > maxLng) {
+      final List<Node> eastern = getClusters(minLng, minLat, 180, maxLat, zoom);
+      eastern.addAll(getClusters(-180, minLat, maxLng, maxLat, zoom));
+      return eastern;
+    }
+
+    final int z = limitZoom(zoom);
+    final List<Node> level = nodes.get(z);
+    final List<Integer> ids = trees[z].range(lngX(minLng), latY(maxLat), lngX(maxLng), latY(minLat));
+    final List<Node> result = new ArrayList<>(ids.size());
+    for (int id : ids) {
+      result.add(level.get(id));
+    }
+    return result;
+  }
+
+  List<Node> getChildren(int clusterId) {
+    final int originId = originId(clusterId);
+    final int originZoom = originZoom(clusterId);
+    if (originZoom < 0 || originZoom > maxZoom + 1 || nodes.get(originZoom) == null
+      || originId < 0 || originId >= nodes.get(originZoom).size()) {
+      throw new IllegalArgumentException("No cluster with the specified id: " + clusterId);
+    }
+    final List<Node> level = nodes.get(originZoom);
+    final Node origin = level.get(originId);
+    final double r = radius / (extent * Math.pow(2, originZoom - 1));
+    final List<Node> children = new ArrayList<>();
+    for (int id : trees[originZoom].within(origin.x, origin.y, r)) {
+      final Node node = level.get(id);
+      if (node.parentId == clusterId) {
+        children.add(node);
+      }
+    }
+    if (children.isEmpty()) {
+      throw new IllegalArgumentException("No cluster with the specified id: " + clusterId);
+    }
+    return children;
+  }
+
+  /**
+   * Returns the indices of the original points in a cluster, paginated by
+   * {@code limit} and {@code offset}.
+   */
+  List<Integer> getLeaves(int clusterId, int limit, int offset) {
+    final List<Integer> leaves = new ArrayList<>();
+    appendLeaves(leaves, clusterId, limit, offset, 0);
+    return leaves;
+  }
+
+  int getClusterExpansionZoom(int clusterId) {
+    int expansionZoom = originZoom(clusterId) - 1;
+    while (expansionZoom <= maxZoom) {
+      final List<Node> children = getChildren(clusterId);
+      expansionZoom++;
+      if (children.size() != 1 || !children.get(0).isCluster()) {
+        break;
+      }
+      clusterId = children.get(0).id;
+    }
+    return expansionZoom;
+  }
+
+  int limitZoom(double zoom) {
+    return Math.max(minZoom, Math.min((int) Math.floor(zoom), maxZoom + 1));
+  }
+
+  private int appendLeaves(List<Integer> result, int clusterId, int limit, int offset, int skipped) {
+    for (Node child : getChildren(clusterId)) {
+      if (child.isCluster()) {
+        if (skipped + child.numPoints <= offset) {
+          // skip the whole cluster
+          skipped += child.numPoints;
+        } else {
+          skipped = appendLeaves(result, child.id, limit, offset, skipped);
+        }
+      } else if (skipped < offset) {
+        skipped++;
+      } else {
+        result.add(child.index);
+      }
+      if (result.size() == limit) {
+        break;
+      }
+    }
+    return skipped;
+  }
+
+  private void index(int zoom, List<Node> clusters) {
+    final int count = clusters.size();
+    final double[] xs = new double[count];
+    final double[] ys = new double[count];
+    for (int i = 0; i < count; i++) {
+      xs[i] = clusters.get(i).x;
+      ys[i] = clusters.get(i).y;
+    }
+    trees[zoom] = new KDBush(xs, ys, count);
+    nodes.set(zoom, clusters);
+  }
+
+  private List<Node> cluster(List<Node> points, int zoom) {
+    final List<Node> clusters = new ArrayList<>();
+    final double r = radius / (extent * Math.pow(2, zoom));
+    final KDBush tree = trees[zoom + 1];
+
+    for (int i = 0; i < points.size(); i++) {
+      final Node p = points.get(i);
+      if (p.zoom <= zoom) {
+        continue;
+      }
+      p.zoom = zoom;
+
+      final List<Integer> neighborIds = tree.within(p.x, p.y, r);
+      int numPoints = p.numPoints;
+      for (int neighborId : neighborIds) {
+        final Node b = points.get(neighborId);
+        if (b.zoom > zoom) {
+          numPoints += b.numPoints;
+        }
+      }
+
+      if (numPoints >= MIN_POINTS) {
+        double wx = p.x * p.numPoints;
+        double wy = p.y * p.numPoints;
+        final int id = (i << 5) + (zoom + 1) + pointCount;
+        for (int neighborId : neighborIds) {
+          final Node b = points.get(neighborId);
+          if (b.zoom <= zoom) {
+            continue;
+          }
+          b.zoom = zoom;
+          wx += b.x * b.numPoints;
+          wy += b.y * b.numPoints;
+          b.parentId = id;
+        }
+        p.parentId = id;
+        clusters.add(new Node(wx / numPoints, wy / numPoints, -1, id, numPoints));
+      } else {
+        clusters.add(p);
+      }
+    }
+    return clusters;
+  }
+
+  private int originId(int clusterId) {
+    return (clusterId - pointCount) >> 5;
+  }
+
+  private int originZoom(int clusterId) {
+    return (clusterId - pointCount) % 32;
+  }
+
+  static double lngX(double lng) {
+    return lng / 360 + 0.5;
+  }
+
+  static double latY(double lat) {
+    final double sin = Math.sin(lat * Math.PI / 180);
+    final double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return y < 0 ? 0 : y > 1 ? 1 : y;
+  }
+
+  private static double xLng(double x) {
+    return (x - 0.5) * 360;
+  }
+
+  private static double yLat(double y) {
+    final double y2 = (180 - y * 360) * Math.PI / 180;
+    return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+  }
+}
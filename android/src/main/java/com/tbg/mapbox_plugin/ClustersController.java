@@ -0,0 +1,270 @@
+package com.tbg.mapbox_plugin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Clusters large point sets natively and renders them through GeoJSON sources.
+ *
+ * Each cluster source owns a {@link ClusterIndex} built off the platform thread. When
+ * the camera becomes idle, only the clusters and points of the current zoom level
+ * inside the viewport plus a margin are pushed to the source.
+ */
+class ClustersController {
+  // fraction of the viewport size added on each side of the rendered area
+  private static final double VIEWPORT_MARGIN = 0.5;
+
+  private static final class ClusterSource {
+    ClusterIndex index;
+    List<String> ids;
+    List<JsonObject> properties;
+    int generation;
+    int renderedZoom = -1;
+    double renderedWest;
+    double renderedSouth;
+    double renderedEast;
+    double renderedNorth;
+  }
+
+  private final Map<String, ClusterSource> sources = new HashMap<>();
+  private MapboxMap mapboxMap;
+
+  void setMapboxMap(MapboxMap mapboxMap) {
+    this.mapboxMap = mapboxMap;
+  }
+
+  /**
+   * Creates or replaces the points of a cluster source, adding its GeoJSON source to
+   * the style when missing. The index is built in the background and {@code result}
+   * completes once the source shows the new clusters.
+   */
+  void setPoints(
+    final String sourceId,
+    final double[] latLngs,
+    final List<String> ids,
+    final List<Object> properties,
+    final int minZoom,
+    final int maxZoom,
+    final double radius,
+    final MethodChannel.Result result) {
+    if (latLngs == null || latLngs.length % 2 != 0) {
+      throw new IllegalArgumentException("Expected latitude and longitude pairs");
+    }
+    // the features of the points index both lists by point
+    final int pointCount = latLngs.length / 2;
+    if (ids != null && ids.size() != pointCount) {
+      throw new IllegalArgumentException("Got " + ids.size() + " ids for " + pointCount + " points");
+    }
+    if (properties != null && properties.size() != pointCount) {
+      throw new IllegalArgumentException("Got " + properties.size() + " properties for " + pointCount + " points");
+    }
+    final Style style = mapboxMap.getStyle();
+    if (style == null) {
+      throw new IllegalStateException("The map style is not loaded yet");
+    }
+    if (style.getSource(sourceId) == null) {
+      style.addSource(new GeoJsonSource(sourceId));
+    }
+    ClusterSource clusterSource = sources.get(sourceId);
+    if (clusterSource == null) {
+      clusterSource = new ClusterSource();
+      sources.put(sourceId, clusterSource);
+    }
+    final ClusterSource target = clusterSource;
+    final int generation = ++target.generation;
+    BackgroundTasks.execute(new Runnable() {
+      @Override
+      public void run() {
+        final ClusterIndex index;
+        final List<JsonObject> pointProperties;
+        try {
+          index = new ClusterIndex(latLngs, pointCount, minZoom, maxZoom, radius, 512);
+          pointProperties = toJsonObjects(properties);
+        } catch (final RuntimeException e) {
+          BackgroundTasks.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+              result.error("CLUSTER_FAILED", e.getMessage(), null);
+            }
+          });
+          return;
+        }
+        BackgroundTasks.runOnMainThread(new Runnable() {
+          @Override
+          public void run() {
+            // a newer setPoints call or a removal supersedes this build
+            if (target.generation == generation && sources.get(sourceId) == target) {
+              target.index = index;
+              target.ids = ids;
+              target.properties = pointProperties;
+              render(sourceId, target, true);
+            }
+            result.success(null);
+          }
+        });
+      }
+    });
+  }
+
+  void remove(String sourceId) {
+    sources.remove(sourceId);
+    final Style style = mapboxMap.getStyle();
+    if (style != null) {
+      style.removeSource(sourceId);
+    }
+  }
+
+  void onCameraIdle() {
+    for (Map.Entry<String, ClusterSource> entry : sources.entrySet()) {
+      if (entry.getValue().index != null) {
+        render(entry.getKey(), entry.getValue(), false);
+      }
+    }
+  }
+
+  void dispose() {
+    sources.clear();
+  }
+
+  List<Object> getChildren(String sourceId, int clusterId) {
+    final ClusterSource clusterSource = clusterSource(sourceId);
+    final List<Object> children = new ArrayList<>();
+    for (ClusterIndex.Node node : clusterSource.index.getChildren(clusterId)) {
+      final Map<String, Object> child = new HashMap<>(5);
+      child.put("cluster", node.isCluster());
+      child.put("id", node.isCluster() ? node.id : pointId(clusterSource, node.index));
+      child.put("pointCount", node.numPoints);
+      child.put("latitude", node.latitude());
+      child.put("longitude", node.longitude());
+      children.add(child);
+    }
+    return children;
+  }
+
+  List<String> getLeaves(String sourceId, int clusterId, int limit, int offset) {
+    final ClusterSource clusterSource = clusterSource(sourceId);
+    final List<String> leaves = new ArrayList<>();
+    for (int index : clusterSource.index.getLeaves(clusterId, limit, offset)) {
+      leaves.add(pointId(clusterSource, index));
+    }
+    return leaves;
+  }
+
+  int getExpansionZoom(String sourceId, int clusterId) {
+    return clusterSource(sourceId).index.getClusterExpansionZoom(clusterId);
+  }
+
+  private ClusterSource clusterSource(String sourceId) {
+    final ClusterSource clusterSource = sources.get(sourceId);
+    if (clusterSource == null || clusterSource.index == null) {
+      throw new IllegalArgumentException("Unknown cluster source: " + sourceId);
+    }
+    return clusterSource;
+  }
+
+  private void render(String sourceId, ClusterSource clusterSource, boolean force) {
+    final Style style = mapboxMap.getStyle();
+    final GeoJsonSource source = style == null ? null : style.<GeoJsonSource>getSourceAs(sourceId);
+    if (source == null) {
+      return;
+    }
+    final double zoom = mapboxMap.getCameraPosition().zoom;
+    final int level = clusterSource.index.limitZoom(zoom);
+    final LatLngBounds visible = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+    final double west = visible.getLonWest();
+    final double east = visible.getLonEast();
+    final double south = visible.getLatSouth();
+    final double north = visible.getLatNorth();
+    if (!force && level == clusterSource.renderedZoom && west <= east
+      && west >= clusterSource.renderedWest && east <= clusterSource.renderedEast
+      && south >= clusterSource.renderedSouth && north <= clusterSource.renderedNorth) {
+      return;
+    }
+
+    double width = east - west;
+    if (width < 0) {
+      width += 360;
+    }
+    final double marginX = width * VIEWPORT_MARGIN;
+    final double marginY = (north - south) * VIEWPORT_MARGIN;
+    if (width + 2 * marginX >= 360) {
+      clusterSource.renderedWest = -180;
+      clusterSource.renderedEast = 180;
+    } else {
+      clusterSource.renderedWest = west - marginX;
+      clusterSource.renderedEast = west + width + marginX;
+    }
+    clusterSource.renderedSouth = Math.max(-90, south - marginY);
+    clusterSource.renderedNorth = Math.min(90, north + marginY);
+    clusterSource.renderedZoom = level;
+
+    final List<ClusterIndex.Node> nodes = clusterSource.index.getClusters(
+      clusterSource.renderedWest, clusterSource.renderedSouth,
+      clusterSource.renderedEast, clusterSource.renderedNorth, zoom);
+    final List<Feature> features = new ArrayList<>(nodes.size());
+    for (ClusterIndex.Node node : nodes) {
+      features.add(toFeature(clusterSource, node));
+    }
+    source.setGeoJson(FeatureCollection.fromFeatures(features));
+  }
+
+  private static Feature toFeature(ClusterSource clusterSource, ClusterIndex.Node node) {
+    final Point point = Point.fromLngLat(node.longitude(), node.latitude());
+    final JsonObject properties;
+    final String id;
+    if (node.isCluster()) {
+      properties = new JsonObject();
+      properties.addProperty("cluster", true);
+      properties.addProperty("cluster_id", node.id);
+      properties.addProperty("point_count", node.numPoints);
+      properties.addProperty("point_count_abbreviated", abbreviate(node.numPoints));
+      id = String.valueOf(node.id);
+    } else {
+      properties = clusterSource.properties == null
+        ? new JsonObject() : clusterSource.properties.get(node.index).deepCopy();
+      properties.addProperty("cluster", false);
+      id = pointId(clusterSource, node.index);
+    }
+    return Feature.fromGeometry(point, properties, id);
+  }
+
+  private static String pointId(ClusterSource clusterSource, int index) {
+    return clusterSource.ids == null ? String.valueOf(index) : clusterSource.ids.get(index);
+  }
+
+  private static String abbreviate(int count) {
+    if (count >= 10000) {
+      return (count / 1000) + "k";
+    }
+    if (count >= 1000) {
+      return (count / 100) / 10.0 + "k";
+    }
+    return String.valueOf(count);
+  }
+
+  private static List<JsonObject> toJsonObjects(List<Object> properties) {
+    if (properties == null) {
+      return null;
+    }
+    final Gson gson = new Gson();
+    final List<JsonObject> jsonObjects = new ArrayList<>(properties.size());
+    for (Object o : properties) {
+      jsonObjects.add(o == null ? new JsonObject() : gson.toJsonTree(o).getAsJsonObject());
+    }
+    return jsonObjects;
+  }
+}
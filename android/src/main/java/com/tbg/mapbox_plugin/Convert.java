@@ -9,6 +9,11 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Point;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mapbox.geojson.Feature;
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
@@ -18,7 +23,14 @@ import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.log.Logger;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
-
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -39,7 +51,7 @@ class Convert {
 
     static IconFactory iconFactory = IconFactory.getInstance(context);
 
-  private static boolean toBoolean(Object o) {
+  static boolean toBoolean(Object o) {
     return (Boolean) o;
   }
 
@@ -54,16 +66,14 @@ class Convert {
         }
       case "fromAsset":
         if (data.size() == 2) {
-          return iconFactory.fromAsset(
-                  FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
+          return fromAsset(FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
         } else {
-          return iconFactory.fromAsset(
+          return fromAsset(
                   FlutterMain.getLookupKeyForAsset(toString(data.get(1)), toString(data.get(2))));
         }
       case "fromAssetImage":
         if (data.size() == 3) {
-          return iconFactory.fromAsset(
-                  FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
+          return fromAsset(FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
         } else {
           throw new IllegalArgumentException(
                   "'fromAssetImage' Expected exactly 3 arguments, got: " + data.size());
@@ -75,11 +85,27 @@ class Convert {
     }
   }
 
+  private static Icon fromAsset(String assetKey) {
+    final String key = IconCache.keyForAsset(assetKey, context.getResources().getDisplayMetrics().density);
+    Icon icon = IconCache.get(key);
+    if (icon == null) {
+      icon = iconFactory.fromAsset(assetKey);
+      IconCache.put(key, icon);
+    }
+    return icon;
+  }
+
   private static Icon getBitmapFromBytes(List<?> data) {
     if (data.size() == 2) {
       try {
-        Bitmap bitmap = toBitmap(data.get(1));
-        return iconFactory.fromBitmap(bitmap);
+        final String key = IconCache.keyForBytes((byte[]) data.get(1));
+        Icon icon = IconCache.get(key);
+        if (icon == null) {
+          Bitmap bitmap = toBitmap(data.get(1));
+          icon = iconFactory.fromBitmap(bitmap);
+          IconCache.put(key, icon);
+        }
+        return icon;
       } catch (Exception e) {
         throw new IllegalArgumentException("Unable to interpret bytes as a valid image.", e);
       }
@@ -222,29 +248,145 @@ class Convert {
     return ((Number) o).intValue();
   }
 
-  static Object toJson(CameraPosition position) {
+  /**
+   * Writes the position into {@code packed} as [lat, lng, zoom, bearing, tilt], the
+   * fixed layout used for camera events, and returns it.
+   */
+  static double[] toPacked(CameraPosition position, double[] packed) {
     if (position == null) {
       return null;
     }
+    packed[0] = position.target.getLatitude();
+    packed[1] = position.target.getLongitude();
+    packed[2] = position.zoom;
+    packed[3] = position.bearing;
+    packed[4] = position.tilt;
+    return packed;
+  }
+
+  /**
+   * Encodes queried features. Without a projection every feature becomes its full
+   * GeoJSON string. With one, only ids are returned when {@code idsOnly} is set,
+   * otherwise a map per feature with its id, the properties listed in
+   * {@code propertyKeys} (all when absent) and, unless {@code includeGeometry} is
+   * false, its geometry as a GeoJSON string.
+   */
+  static List<Object> featuresToJson(List<Feature> features, Object projection) {
+    final List<Object> featuresJson = new ArrayList<>(features.size());
+    if (projection == null) {
+      for (Feature feature : features) {
+        featuresJson.add(feature.toJson());
+      }
+      return featuresJson;
+    }
+    final Map<?, ?> data = toMap(projection);
+    final Object idsOnly = data.get("idsOnly");
+    if (idsOnly != null && toBoolean(idsOnly)) {
+      for (Feature feature : features) {
+        featuresJson.add(feature.id());
+      }
+      return featuresJson;
+    }
+    final List<?> propertyKeys = (List<?>) data.get("propertyKeys");
+    final Object includeGeometry = data.get("includeGeometry");
+    final boolean withGeometry = includeGeometry == null || toBoolean(includeGeometry);
+    for (Feature feature : features) {
+      final Map<String, Object> featureJson = new HashMap<>(3);
+      featureJson.put("id", feature.id());
+      featureJson.put("properties", toJson(feature.properties(), propertyKeys));
+      if (withGeometry && feature.geometry() != null) {
+        featureJson.put("geometry", feature.geometry().toJson());
+      }
+      featuresJson.add(featureJson);
+    }
+    return featuresJson;
+  }
+
+  private static Map<String, Object> toJson(JsonObject properties, List<?> keys) {
     final Map<String, Object> data = new HashMap<>();
-    data.put("bearing", position.bearing);
-    data.put("target", toJson(position.target));
-    data.put("tilt", position.tilt);
-    data.put("zoom", position.zoom);
+    if (properties == null) {
+      return data;
+    }
+    if (keys == null) {
+      for (Map.Entry<String, JsonElement> entry : properties.entrySet()) {
+        data.put(entry.getKey(), toJson(entry.getValue()));
+      }
+    } else {
+      for (Object key : keys) {
+        final JsonElement value = properties.get(toString(key));
+        if (value != null) {
+          data.put(toString(key), toJson(value));
+        }
+      }
+    }
     return data;
   }
 
-  private static Object toJson(LatLng latLng) {
-    return Arrays.asList(latLng.getLatitude(), latLng.getLongitude());
+  /**
+   * Primitive property values map to their codec types, objects and arrays stay
+   * JSON strings.
+   */
+  private static Object toJson(JsonElement element) {
+    if (element.isJsonNull()) {
+      return null;
+    }
+    if (element.isJsonPrimitive()) {
+      final JsonPrimitive primitive = element.getAsJsonPrimitive();
+      if (primitive.isBoolean()) {
+        return primitive.getAsBoolean();
+      }
+      if (primitive.isNumber()) {
+        return primitive.getAsDouble();
+      }
+      return primitive.getAsString();
+    }
+    return element.toString();
   }
 
-  private static LatLng toLatLng(Object o) {
+  /**
+   * Interprets a map of style property names, such as {@code circle-radius}, to
+   * values. Lists starting with a string are expressions (string arrays such as
+   * text-font are passed as {@code ["literal", [...]]}), other lists are numeric
+   * arrays.
+   */
+  static PropertyValue<?>[] toLayerProperties(Object o) {
+    if (o == null) {
+      return new PropertyValue<?>[0];
+    }
+    final Map<?, ?> data = toMap(o);
+    final PropertyValue<?>[] properties = new PropertyValue<?>[data.size()];
+    int i = 0;
+    for (Map.Entry<?, ?> entry : data.entrySet()) {
+      properties[i++] = new PropertyValue<>(toString(entry.getKey()), toPropertyValue(entry.getValue()));
+    }
+    return properties;
+  }
+
+  private static Object toPropertyValue(Object o) {
+    if (o instanceof List) {
+      final List<?> data = toList(o);
+      if (!data.isEmpty() && data.get(0) instanceof String) {
+        return Expression.Converter.convert(new Gson().toJsonTree(data).getAsJsonArray());
+      }
+      final Float[] values = new Float[data.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = toFloat(data.get(i));
+      }
+      return values;
+    }
+    if (o instanceof Number && !(o instanceof Float)) {
+      return toFloat(o);
+    }
+    return o;
+  }
+
+  static LatLng toLatLng(Object o) {
     final List<?> data = toList(o);
     return new LatLng(toDouble(data.get(0)), toDouble(data.get(1)));
   }
 
 
-  private static LatLngBounds toLatLngBounds(Object o) {
+  static LatLngBounds toLatLngBounds(Object o) {
     if (o == null) {
       return null;
     }
@@ -260,6 +402,12 @@ class Convert {
     if (o == null) {
       return null;
     }
+    if (o instanceof double[]) {
+      return toLatLngList(DoubleBuffer.wrap((double[]) o));
+    }
+    if (o instanceof byte[]) {
+      return toLatLngList(ByteBuffer.wrap((byte[]) o).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+    }
     final List<?> data = toList(o);
     List<LatLng> latLngList = new ArrayList<>();
     for (int i=0; i<data.size(); i++) {
@@ -269,6 +417,19 @@ class Convert {
     return latLngList;
   }
 
+  /**
+   * Reads packed geometry of interleaved latitude/longitude pairs, as sent for a
+   * Float64List, without boxing each coordinate.
+   */
+  private static List<LatLng> toLatLngList(DoubleBuffer coords) {
+    final int count = coords.remaining() / 2;
+    final List<LatLng> latLngList = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      latLngList.add(new LatLng(coords.get(), coords.get()));
+    }
+    return latLngList;
+  }
+
   private static List<?> toList(Object o) {
     return (List<?>) o;
   }
@@ -277,10 +438,34 @@ class Convert {
     return ((Number) o).longValue();
   }
 
+  /**
+   * Annotation ids cross the channel as strings but are kept as longs natively.
+   */
+  static long toAnnotationId(Object o) {
+    return Long.parseLong((String) o);
+  }
+
   static Map<?, ?> toMap(Object o) {
     return (Map<?, ?>) o;
   }
 
+  /**
+   * Returns the SHA-1 of the bytes in lowercase hex, the content key of cached icons
+   * and registered styles.
+   */
+  static String toSha1Hex(byte[] bytes) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+      final StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
   private static float toFractionalPixels(Object o, float density) {
     return toFloat(o) * density;
   }
@@ -336,6 +521,10 @@ class Convert {
     if (trackCameraPosition != null) {
       sink.setTrackCameraPosition(toBoolean(trackCameraPosition));
     }
+    final Object cameraMoveEventRate = data.get("cameraMoveEventRate");
+    if (cameraMoveEventRate != null) {
+      sink.setCameraMoveEventRate(toInt(cameraMoveEventRate));
+    }
     final Object zoomGesturesEnabled = data.get("zoomGesturesEnabled");
     if (zoomGesturesEnabled != null) {
       sink.setZoomGesturesEnabled(toBoolean(zoomGesturesEnabled));
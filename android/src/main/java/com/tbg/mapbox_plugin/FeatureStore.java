@@ -0,0 +1,49 @@
+package com.tbg.mapbox_plugin;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Features of a GeoJSON source kept on the native side, keyed by feature id, so
+ * changes to a few features don't require re-sending the whole collection.
+ */
+class FeatureStore {
+  private final Map<String, Feature> features = new LinkedHashMap<>();
+
+  void reset(List<Feature> newFeatures) {
+    features.clear();
+    upsert(newFeatures);
+  }
+
+  void upsert(List<Feature> changedFeatures) {
+    if (changedFeatures == null) {
+      return;
+    }
+    for (Feature feature : changedFeatures) {
+      final String id = feature.id();
+      if (id == null) {
+        throw new IllegalArgumentException("Features of a feature store need an id");
+      }
+      features.put(id, feature);
+    }
+  }
+
+  void remove(List<?> ids) {
+    for (Object id : ids) {
+      features.remove(String.valueOf(id));
+    }
+  }
+
+  int size() {
+    return features.size();
+  }
+
+  FeatureCollection toFeatureCollection() {
+    return FeatureCollection.fromFeatures(new ArrayList<>(features.values()));
+  }
+}
@@ -1,15 +1,21 @@
 package com.tbg.mapbox_plugin;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import com.mapbox.mapboxsdk.Mapbox;
+import com.mapbox.mapboxsdk.offline.OfflineManager;
+import com.mapbox.mapboxsdk.offline.OfflineRegion;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
@@ -17,21 +23,71 @@ import io.flutter.plugin.common.PluginRegistry;
 
 class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
     private static final String TAG = GlobalMethodHandler.class.getSimpleName();
-    private static final String DATABASE_NAME = "mbgl-offline.db";
-    private static final int BUFFER_SIZE = 1024 * 2;
     private final PluginRegistry.Registrar registrar;
+    private final MethodChannel methodChannel;
+    private final MapViewPool mapViewPool;
 
-    GlobalMethodHandler(PluginRegistry.Registrar registrar) {
+    GlobalMethodHandler(PluginRegistry.Registrar registrar, MethodChannel methodChannel,
+                        MapViewPool mapViewPool) {
         this.registrar = registrar;
+        this.methodChannel = methodChannel;
+        this.mapViewPool = mapViewPool;
     }
 
     @Override
     public void onMethodCall(MethodCall methodCall, MethodChannel.Result result) {
         switch (methodCall.method) {
             case "installOfflineMapTiles":
-                String tilesDb = methodCall.argument("tilesdb");
-                String assetKey = registrar.lookupKeyForAsset(tilesDb);
-                installOfflineMapTiles(assetKey);
+                final Boolean reportProgress = methodCall.argument("reportProgress");
+                final Boolean force = methodCall.argument("force");
+                installOfflineMapTiles(
+                        methodCall.<String>argument("tilesdb"),
+                        methodCall.<String>argument("version"),
+                        force != null && force,
+                        reportProgress != null && reportProgress,
+                        result);
+                break;
+            case "mergeOfflineMapTiles":
+                final Boolean reportMergeProgress = methodCall.argument("reportProgress");
+                final Boolean forceMerge = methodCall.argument("force");
+                mergeOfflineMapTiles(
+                        methodCall.<String>argument("tilesdb"),
+                        methodCall.<String>argument("version"),
+                        forceMerge != null && forceMerge,
+                        reportMergeProgress != null && reportMergeProgress,
+                        result);
+                break;
+            case "iconCache#setMaxBytes":
+                final Integer maxBytes = methodCall.argument("maxBytes");
+                if (maxBytes == null || maxBytes <= 0) {
+                    throw new IllegalArgumentException("Invalid icon cache size: " + maxBytes);
+                }
+                IconCache.setMaxBytes(maxBytes);
+                result.success(null);
+                break;
+            case "iconCache#clear":
+                IconCache.clear();
+                result.success(null);
+                break;
+            case "iconCache#getStats":
+                result.success(IconCache.getStats());
+                break;
+            case "style#register":
+                registerStyle(
+                        methodCall.<String>argument("key"),
+                        methodCall.<String>argument("json"),
+                        methodCall.<String>argument("asset"),
+                        result);
+                break;
+            case "style#preload":
+                preloadStyle(methodCall.<String>argument("key"), result);
+                break;
+            case "mapViewPool#configure":
+                final Integer poolSize = methodCall.argument("size");
+                if (poolSize == null) {
+                    throw new IllegalArgumentException("Missing pool size");
+                }
+                mapViewPool.configure(poolSize, methodCall.<String>argument("styleString"));
                 result.success(null);
                 break;
             default:
@@ -40,41 +96,234 @@ class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
         }
     }
 
-    private void installOfflineMapTiles(String assetKey) {
-        final Context context = registrar.activeContext();
-        try {
-            File dest = new File(context.getFilesDir(), DATABASE_NAME);
-            copy(context.getAssets().open(assetKey),
-                    new FileOutputStream(dest));
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Registers a style given as JSON or as a Flutter asset on a worker thread and
+     * replies with its digest.
+     */
+    private void registerStyle(
+            final String key, final String json, final String asset, final MethodChannel.Result result) {
+        if (key == null || (json == null) == (asset == null)) {
+            throw new IllegalArgumentException("A style needs a key and either a JSON or an asset");
         }
+        final Context context = registrar.activeContext();
+        final String assetKey = asset == null ? null : registrar.lookupKeyForAsset(asset);
+        BackgroundTasks.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String digest;
+                try {
+                    final byte[] bytes = assetKey == null
+                            ? json.getBytes(Charset.forName("UTF-8"))
+                            : readAsset(context, assetKey);
+                    digest = StyleRegistry.register(context, key, bytes);
+                } catch (final IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to register style " + key, e);
+                    BackgroundTasks.runOnMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            result.error("STYLE_REGISTER_FAILED", e.getMessage(), null);
+                        }
+                    });
+                    return;
+                }
+                BackgroundTasks.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        result.success(digest);
+                    }
+                });
+            }
+        });
     }
 
-    private static int copy(InputStream input, OutputStream output) throws IOException {
-        final byte[] buffer = new byte[BUFFER_SIZE];
-        final BufferedInputStream in = new BufferedInputStream(input, BUFFER_SIZE);
-        final BufferedOutputStream out = new BufferedOutputStream(output, BUFFER_SIZE);
-        int count = 0;
-        int n = 0;
-        try {
-            while ((n = in.read(buffer, 0, BUFFER_SIZE)) != -1) {
+    /**
+     * Makes a style registered in an earlier run available on a worker thread and
+     * replies with its digest, or null when it is not in the disk cache.
+     */
+    private void preloadStyle(final String key, final MethodChannel.Result result) {
+        final Context context = registrar.activeContext();
+        BackgroundTasks.execute(new Runnable() {
+            @Override
+            public void run() {
+                String digest;
+                try {
+                    digest = StyleRegistry.preload(context, key);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to preload style " + key, e);
+                    digest = null;
+                }
+                final String preloadedDigest = digest;
+                BackgroundTasks.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        result.success(preloadedDigest);
+                    }
+                });
+            }
+        });
+    }
+
+    private static byte[] readAsset(Context context, String assetKey) throws IOException {
+        try (InputStream in = context.getAssets().open(assetKey)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 8192));
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
                 out.write(buffer, 0, n);
-                count += n;
             }
-            out.flush();
-        } finally {
-            try {
-                out.close();
-            } catch (IOException e) {
-                Log.e(TAG, e.getMessage(), e);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Installs the tiles database on a worker thread, unless the same version is already
+     * installed and {@code force} is not set. With {@code reportProgress},
+     * "installOfflineMapTiles#onProgress" events are sent while copying.
+     */
+    private void installOfflineMapTiles(
+            final String tilesDb,
+            final String version,
+            final boolean force,
+            final boolean reportProgress,
+            final MethodChannel.Result result) {
+        final Context context = registrar.activeContext();
+        final String assetKey = registrar.lookupKeyForAsset(tilesDb);
+        BackgroundTasks.executeLong(new Runnable() {
+            @Override
+            public void run() {
+                final boolean installed;
+                try {
+                    installed = OfflineTilesInstaller.install(context, assetKey, version, force,
+                            new OfflineTilesInstaller.ProgressListener() {
+                                @Override
+                                public void onProgress(long bytesCopied, long totalBytes) {
+                                    if (reportProgress) {
+                                        sendInstallProgress(tilesDb, bytesCopied, totalBytes);
+                                    }
+                                }
+                            });
+                } catch (final IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to install " + tilesDb, e);
+                    BackgroundTasks.runOnMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            result.error("INSTALL_FAILED", e.getMessage(), null);
+                        }
+                    });
+                    return;
+                }
+                BackgroundTasks.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        result.success(installed);
+                    }
+                });
             }
-            try {
-                in.close();
-            } catch (IOException e) {
-                Log.e(TAG, e.getMessage(), e);
+        });
+    }
+
+    /**
+     * Extracts the tiles database on a worker thread, then merges its regions into the
+     * offline database of the SDK, keeping the ambient cache. Replies with the merged
+     * regions and the time spent, or with a null region list when the same version was
+     * already merged.
+     */
+    private void mergeOfflineMapTiles(
+            final String tilesDb,
+            final String version,
+            final boolean force,
+            final boolean reportProgress,
+            final MethodChannel.Result result) {
+        final Context context = registrar.activeContext();
+        final String assetKey = registrar.lookupKeyForAsset(tilesDb);
+        final long startTime = SystemClock.elapsedRealtime();
+        BackgroundTasks.executeLong(new Runnable() {
+            @Override
+            public void run() {
+                final OfflineTilesInstaller.MergeSource source;
+                try {
+                    source = OfflineTilesInstaller.extractForMerge(context, assetKey, version, force,
+                            new OfflineTilesInstaller.ProgressListener() {
+                                @Override
+                                public void onProgress(long bytesCopied, long totalBytes) {
+                                    if (reportProgress) {
+                                        sendInstallProgress(tilesDb, bytesCopied, totalBytes);
+                                    }
+                                }
+                            });
+                } catch (final IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to extract " + tilesDb, e);
+                    BackgroundTasks.runOnMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            result.error("MERGE_FAILED", e.getMessage(), null);
+                        }
+                    });
+                    return;
+                }
+                final long extractTime = SystemClock.elapsedRealtime();
+                BackgroundTasks.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (source == null) {
+                            result.success(mergeReply(null, extractTime - startTime, 0));
+                            return;
+                        }
+                        Mapbox.getInstance(context, MapboxMapController.getAccessToken(context));
+                        OfflineManager.getInstance(context).mergeOfflineRegions(source.file.getPath(),
+                                new OfflineManager.MergeOfflineRegionsCallback() {
+                                    @Override
+                                    public void onMerge(OfflineRegion[] offlineRegions) {
+                                        final long mergeTime = SystemClock.elapsedRealtime();
+                                        try {
+                                            OfflineTilesInstaller.recordMerge(context, source);
+                                        } catch (IOException e) {
+                                            // the regions are merged, only a later skip is lost
+                                            Log.e(TAG, "Failed to record the merge of " + tilesDb, e);
+                                        }
+                                        result.success(mergeReply(
+                                                offlineRegions, extractTime - startTime, mergeTime - extractTime));
+                                    }
+
+                                    @Override
+                                    public void onError(String error) {
+                                        source.file.delete();
+                                        result.error("MERGE_FAILED", error, null);
+                                    }
+                                });
+                    }
+                });
+            }
+        });
+    }
+
+    private static Map<String, Object> mergeReply(OfflineRegion[] offlineRegions, long extractMillis, long mergeMillis) {
+        final Map<String, Object> reply = new HashMap<>(3);
+        if (offlineRegions != null) {
+            final List<Object> regions = new ArrayList<>(offlineRegions.length);
+            for (OfflineRegion offlineRegion : offlineRegions) {
+                final Map<String, Object> region = new HashMap<>(2);
+                region.put("id", offlineRegion.getID());
+                region.put("metadata", offlineRegion.getMetadata());
+                regions.add(region);
             }
+            reply.put("regions", regions);
         }
-        return count;
+        reply.put("extractMillis", extractMillis);
+        reply.put("mergeMillis", mergeMillis);
+        return reply;
+    }
+
+    private void sendInstallProgress(String tilesDb, long bytesCopied, long totalBytes) {
+        final Map<String, Object> arguments = new HashMap<>(3);
+        arguments.put("tilesdb", tilesDb);
+        arguments.put("bytesCopied", bytesCopied);
+        arguments.put("totalBytes", totalBytes);
+        BackgroundTasks.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                methodChannel.invokeMethod("installOfflineMapTiles#onProgress", arguments);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.tbg.mapbox_plugin;
+
+import android.util.LruCache;
+
+import com.mapbox.mapboxsdk.annotations.Icon;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of decoded marker icons.
+ *
+ * Icons are keyed by a digest of their encoded bytes, or by asset key and display
+ * density, so markers sharing an image decode and upload it once. The cache is
+ * bounded by the byte size of the cached bitmaps.
+ */
+final class IconCache {
+  private static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+  private static LruCache<String, Icon> cache = newCache(DEFAULT_MAX_BYTES);
+
+  private IconCache() {
+  }
+
+  static synchronized Icon get(String key) {
+    return cache.get(key);
+  }
+
+  static synchronized void put(String key, Icon icon) {
+    cache.put(key, icon);
+  }
+
+  /**
+   * Replaces the cache with an empty one bounded by {@code maxBytes}, resetting the
+   * counters.
+   */
+  static synchronized void setMaxBytes(int maxBytes) {
+    cache.evictAll();
+    cache = newCache(maxBytes);
+  }
+
+  static synchronized void clear() {
+    cache.evictAll();
+  }
+
+  static synchronized Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    stats.put("hitCount", cache.hitCount());
+    stats.put("missCount", cache.missCount());
+    stats.put("evictionCount", cache.evictionCount());
+    stats.put("entryCount", cache.snapshot().size());
+    stats.put("sizeBytes", cache.size());
+    stats.put("maxBytes", cache.maxSize());
+    return stats;
+  }
+
+  static String keyForBytes(byte[] bytes) {
+    return "bytes:" + Convert.toSha1Hex(bytes);
+  }
+
+  static String keyForAsset(String assetKey, float density) {
+    return "asset:" + assetKey + "@" + density;
+  }
+
+  private static LruCache<String, Icon> newCache(int maxBytes) {
+    return new LruCache<String, Icon>(maxBytes) {
+      @Override
+      protected int sizeOf(String key, Icon icon) {
+        return icon.getBitmap().getByteCount();
+      }
+    };
+  }
+}
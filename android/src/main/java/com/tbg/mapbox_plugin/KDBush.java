@@ -0,0 +1,201 @@
+package com.tbg.mapbox_plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static 2D kd-tree over a fixed set of points, sorted in place once at build time.
+ *
+ * Supports axis-aligned range and radius queries returning the indices of the
+ * matching points in the input order.
+ */
+class KDBush {
+  private static final int NODE_SIZE = 64;
+
+  private final int[] ids;
+  private final double[] coords;
+
+  /**
+   * @param xs x coordinates, not retained
+   * @param ys y coordinates, not retained
+   */
+  KDBush(double[] xs, double[] ys, int count) {
+    ids = new int[count];
+    coords = new double[count * 2];
+    for (int i = 0; i < count; i++) {
+      ids[i] = i;
+      coords[2 * i] = xs[i];
+      coords[2 * i + 1] = ys[i];
+    }
+    sort(0, count - 1, 0);
+  }
+
+  List<Integer> range(double minX, double minY, double maxX, double maxY) {
+    final List<Integer> result = new ArrayList<>();
+    final int[] stack = new int[96];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = ids.length - 1;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      final int axis = stack[--top];
+      final int right = stack[--top];
+      final int left = stack[--top];
+
+      if (right - left <= NODE_SIZE) {
+        for (int i = left; i <= right; i++) {
+          final double x = coords[2 * i];
+          final double y = coords[2 * i + 1];
+          if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+            result.add(ids[i]);
+          }
+        }
+        continue;
+      }
+
+      final int m = (left + right) >> 1;
+      final double x = coords[2 * m];
+      final double y = coords[2 * m + 1];
+      if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+        result.add(ids[m]);
+      }
+      if (axis == 0 ? minX <= x : minY <= y) {
+        stack[top++] = left;
+        stack[top++] = m - 1;
+        stack[top++] = 1 - axis;
+      }
+      if (axis == 0 ? maxX >= x : maxY >= y) {
+        stack[top++] = m + 1;
+        stack[top++] = right;
+        stack[top++] = 1 - axis;
+      }
+    }
+    return result;
+  }
+
+  List<Integer> within(double qx, double qy, double r) {
+    final List<Integer> result = new ArrayList<>();
+    final double r2 = r * r;
+    final int[] stack = new int[96];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = ids.length - 1;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      final int axis = stack[--top];
+      final int right = stack[--top];
+      final int left = stack[--top];
+
+      if (right - left <= NODE_SIZE) {
+        for (int i = left; i <= right; i++) {
+          if (sqDist(coords[2 * i], coords[2 * i + 1], qx, qy) <= r2) {
+            result.add(ids[i]);
+          }
+        }
+        continue;
+      }
+
+      final int m = (left + right) >> 1;
+      final double x = coords[2 * m];
+      final double y = coords[2 * m + 1];
+      if (sqDist(x, y, qx, qy) <= r2) {
+        result.add(ids[m]);
+      }
+      if (axis == 0 ? qx - r <= x : qy - r <= y) {
+        stack[top++] = left;
+        stack[top++] = m - 1;
+        stack[top++] = 1 - axis;
+      }
+      if (axis == 0 ? qx + r >= x : qy + r >= y) {
+        stack[top++] = m + 1;
+        stack[top++] = right;
+        stack[top++] = 1 - axis;
+      }
+    }
+    return result;
+  }
+
+  private void sort(int left, int right, int axis) {
+    if (right - left <= NODE_SIZE) {
+      return;
+    }
+    final int m = (left + right) >> 1;
+    select(m, left, right, axis);
+    sort(left, m - 1, 1 - axis);
+    sort(m + 1, right, 1 - axis);
+  }
+
+  /**
+   * Floyd-Rivest selection: partially sorts [left, right] so that the k-th element
+   * along {@code axis} is in place.
+   */
+  private void select(int k, int left, int right, int axis) {
+    while (right > left) {
+      if (right - left > 600) {
+        final int n = right - left + 1;
+        final int m = k - left + 1;
+        final double z = Math.log(n);
+        final double s = 0.5 * Math.exp(2 * z / 3);
+        final double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (m - n / 2 < 0 ? -1 : 1);
+        final int newLeft = (int) Math.max(left, Math.floor(k - m * s / n + sd));
+        final int newRight = (int) Math.min(right, Math.floor(k + (n - m) * s / n + sd));
+        select(k, newLeft, newRight, axis);
+      }
+
+      final double t = coords[2 * k + axis];
+      int i = left;
+      int j = right;
+
+      swapItem(left, k);
+      if (coords[2 * right + axis] > t) {
+        swapItem(left, right);
+      }
+
+      while (i < j) {
+        swapItem(i, j);
+        i++;
+        j--;
+        while (coords[2 * i + axis] < t) {
+          i++;
+        }
+        while (coords[2 * j + axis] > t) {
+          j--;
+        }
+      }
+
+      if (coords[2 * left + axis] == t) {
+        swapItem(left, j);
+      } else {
+        j++;
+        swapItem(j, right);
+      }
+
+      if (j <= k) {
+        left = j + 1;
+      }
+      if (k <= j) {
+        right = j - 1;
+      }
+    }
+  }
+
+  private void swapItem(int i, int j) {
+    final int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    final double x = coords[2 * i];
+    coords[2 * i] = coords[2 * j];
+    coords[2 * j] = x;
+    final double y = coords[2 * i + 1];
+    coords[2 * i + 1] = coords[2 * j + 1];
+    coords[2 * j + 1] = y;
+  }
+
+  private static double sqDist(double ax, double ay, double bx, double by) {
+    final double dx = ax - bx;
+    final double dy = ay - by;
+    return dx * dx + dy * dy;
+  }
+}
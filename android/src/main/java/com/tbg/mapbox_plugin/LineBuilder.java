@@ -26,6 +26,10 @@ class LineBuilder implements LineOptionsSink {
     return lineManager.create(lineOptions);
   }
 
+  LineOptions getLineOptions() {
+    return lineOptions;
+  }
+
   @Override
   public void setLineJoin(String lineJoin) {
     lineOptions.withLineJoin(lineJoin);
@@ -38,6 +38,10 @@ class LineController implements LineOptionsSink {
     return consumeTapEvents;
   }
 
+  Line getLine() {
+    return line;
+  }
+
   void remove(LineManager lineManager) {
     lineManager.delete(line);
   }
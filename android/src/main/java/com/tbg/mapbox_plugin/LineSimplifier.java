@@ -0,0 +1,206 @@
+package com.tbg.mapbox_plugin;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.plugins.annotation.Line;
+import com.mapbox.mapboxsdk.plugins.annotation.LineManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders opted-in lines with a level of detail matching the camera zoom.
+ *
+ * For each line a Douglas-Peucker pass run once in the background ranks every vertex
+ * by the tolerance up to which it survives simplification. The vertex list for a zoom
+ * level keeps the vertices whose rank exceeds half a pixel at that zoom, and is
+ * cached, which forms a pyramid of simplified geometries selected on camera idle.
+ */
+class LineSimplifier {
+  private static final int MAX_ZOOM = 22;
+  private static final double TOLERANCE_PIXELS = 0.5;
+  private static final double TILE_SIZE = 512;
+
+  /** The simplification levels of a single line. */
+  private static final class Pyramid {
+    final List<LatLng> latLngs;
+    // squared tolerance up to which each vertex is kept
+    final double[] ranks;
+    @SuppressWarnings("unchecked")
+    final List<LatLng>[] levels = new List[MAX_ZOOM + 1];
+    int renderedZoom = -1;
+
+    Pyramid(List<LatLng> latLngs) {
+      this.latLngs = latLngs;
+      this.ranks = rank(latLngs);
+    }
+
+    List<LatLng> level(int zoom) {
+      if (levels[zoom] == null) {
+        final double tolerance = TOLERANCE_PIXELS / (TILE_SIZE * Math.pow(2, zoom));
+        final double toleranceSq = tolerance * tolerance;
+        final List<LatLng> level = new ArrayList<>();
+        for (int i = 0; i < ranks.length; i++) {
+          if (ranks[i] > toleranceSq) {
+            level.add(latLngs.get(i));
+          }
+        }
+        levels[zoom] = level;
+      }
+      return levels[zoom];
+    }
+  }
+
+  private final LongObjectMap<Pyramid> pyramids = new LongObjectMap<>();
+  // lines whose pyramid is being built, by line id, with the generation of the build
+  private final LongObjectMap<Integer> pendingBuilds = new LongObjectMap<>();
+  private int generation = 0;
+  private int zoom = 0;
+  private LineManager lineManager;
+
+  void setLineManager(LineManager lineManager) {
+    this.lineManager = lineManager;
+  }
+
+  boolean contains(long lineId) {
+    return pyramids.containsKey(lineId) || pendingBuilds.containsKey(lineId);
+  }
+
+  /**
+   * Takes the current vertices of the line as its full geometry and builds its pyramid
+   * in the background; the line is then switched to the level of the current zoom.
+   */
+  void put(final Line line) {
+    final List<LatLng> latLngs = new ArrayList<>(line.getLatLngs());
+    final int buildGeneration = ++generation;
+    pyramids.remove(line.getId());
+    pendingBuilds.put(line.getId(), buildGeneration);
+    BackgroundTasks.execute(new Runnable() {
+      @Override
+      public void run() {
+        final Pyramid pyramid = new Pyramid(latLngs);
+        BackgroundTasks.runOnMainThread(new Runnable() {
+          @Override
+          public void run() {
+            final Integer pending = pendingBuilds.get(line.getId());
+            if (pending == null || pending != buildGeneration) {
+              // the line was removed or its geometry replaced meanwhile
+              return;
+            }
+            pendingBuilds.remove(line.getId());
+            pyramids.put(line.getId(), pyramid);
+            if (render(line, pyramid)) {
+              lineManager.update(line);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Stops simplifying the line. With {@code restore} its full geometry is set back on
+   * the line, which then needs an update.
+   */
+  void remove(Line line, boolean restore) {
+    pendingBuilds.remove(line.getId());
+    final Pyramid pyramid = pyramids.remove(line.getId());
+    if (restore && pyramid != null) {
+      line.setLatLngs(pyramid.latLngs);
+    }
+  }
+
+  void remove(long lineId) {
+    pendingBuilds.remove(lineId);
+    pyramids.remove(lineId);
+  }
+
+  /** Switches the simplified lines to the level of the given camera zoom. */
+  void onCameraIdle(double cameraZoom, LongObjectMap<LineController> lines) {
+    zoom = Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(cameraZoom)));
+    if (pyramids.isEmpty()) {
+      return;
+    }
+    final List<Line> changedLines = new ArrayList<>();
+    for (int slot = 0; slot < pyramids.capacity(); slot++) {
+      final Pyramid pyramid = pyramids.valueAt(slot);
+      if (pyramid == null) {
+        continue;
+      }
+      final LineController lineController = lines.get(pyramids.keyAt(slot));
+      if (lineController != null && render(lineController.getLine(), pyramid)) {
+        changedLines.add(lineController.getLine());
+      }
+    }
+    if (!changedLines.isEmpty()) {
+      lineManager.update(changedLines);
+    }
+  }
+
+  void dispose() {
+    pyramids.clear();
+    pendingBuilds.clear();
+  }
+
+  private boolean render(Line line, Pyramid pyramid) {
+    if (pyramid.renderedZoom == zoom) {
+      return false;
+    }
+    pyramid.renderedZoom = zoom;
+    line.setLatLngs(pyramid.level(zoom));
+    return true;
+  }
+
+  private static double[] rank(List<LatLng> latLngs) {
+    final int count = latLngs.size();
+    final double[] xs = new double[count];
+    final double[] ys = new double[count];
+    for (int i = 0; i < count; i++) {
+      xs[i] = ClusterIndex.lngX(latLngs.get(i).getLongitude());
+      ys[i] = ClusterIndex.latY(latLngs.get(i).getLatitude());
+    }
+    return rank(xs, ys);
+  }
+
+  /**
+   * Ranks the vertices by iterative Douglas-Peucker, here in spherical mercator
+   * coordinates. A vertex ranks at its squared distance to the segment it splits,
+   * capped by the rank of the vertex that split the enclosing segment, so the vertices
+   * ranked above a squared tolerance are exactly those Douglas-Peucker keeps with that
+   * tolerance. Endpoints always stay.
+   */
+  static double[] rank(double[] xs, double[] ys) {
+    final int count = xs.length;
+    final double[] ranks = new double[count];
+    if (count == 0) {
+      return ranks;
+    }
+    ranks[0] = Double.POSITIVE_INFINITY;
+    ranks[count - 1] = Double.POSITIVE_INFINITY;
+
+    final List<int[]> stack = new ArrayList<>();
+    stack.add(new int[] {0, count - 1});
+    while (!stack.isEmpty()) {
+      final int[] segment = stack.remove(stack.size() - 1);
+      final int first = segment[0];
+      final int last = segment[1];
+      final double cap = Math.min(ranks[first], ranks[last]);
+      double maxDistanceSq = -1;
+      int index = -1;
+      for (int i = first + 1; i < last; i++) {
+        final double distanceSq = AnnotationIndex.segmentDistanceSq(
+          xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+        if (distanceSq > maxDistanceSq) {
+          maxDistanceSq = distanceSq;
+          index = i;
+        }
+      }
+      if (index == -1) {
+        continue;
+      }
+      ranks[index] = Math.min(maxDistanceSq, cap);
+      stack.add(new int[] {first, index});
+      stack.add(new int[] {index, last});
+    }
+    return ranks;
+  }
+}
@@ -0,0 +1,132 @@
+package com.tbg.mapbox_plugin;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-zero primitive long values.
+ *
+ * The primitive counterpart of {@link LongObjectMap} for id to id mappings, so neither
+ * the key nor the value is boxed. A zero value marks an empty slot and is returned for
+ * missing keys.
+ */
+class LongLongMap {
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+
+  LongLongMap() {
+    allocate(MIN_CAPACITY);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the value of {@code key}, or 0 when missing. */
+  long get(long key) {
+    int slot = slot(key);
+    while (values[slot] != 0) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  boolean containsKey(long key) {
+    return get(key) != 0;
+  }
+
+  /** Returns the previous value of {@code key}, or 0 when there was none. */
+  long put(long key, long value) {
+    if (value == 0) {
+      throw new IllegalArgumentException("value is zero");
+    }
+    int slot = slot(key);
+    while (values[slot] != 0) {
+      if (keys[slot] == key) {
+        final long previous = values[slot];
+        values[slot] = value;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > (values.length >> 1) + (values.length >> 2)) {
+      rehash(values.length << 1);
+    }
+    return 0;
+  }
+
+  /** Returns the removed value of {@code key}, or 0 when missing. */
+  long remove(long key) {
+    int slot = slot(key);
+    while (values[slot] != 0) {
+      if (keys[slot] == key) {
+        final long previous = values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  void clear() {
+    Arrays.fill(values, 0);
+    size = 0;
+  }
+
+  private void shiftBack(int slot) {
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (values[next] != 0) {
+      final int home = slot(keys[next]);
+      // move the entry into the gap unless its home lies cyclically in (gap, next]
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[gap] = 0;
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = keys;
+    final long[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != 0) {
+        int slot = slot(oldKeys[i]);
+        while (values[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
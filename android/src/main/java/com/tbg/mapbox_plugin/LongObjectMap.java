@@ -0,0 +1,149 @@
+package com.tbg.mapbox_plugin;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-null values.
+ *
+ * Annotation ids are kept as longs on the native side so lookups neither box the key
+ * nor allocate a String. Collisions are resolved by linear probing, removals shift
+ * the following entries back so no tombstones are left behind.
+ */
+class LongObjectMap<V> {
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  LongObjectMap() {
+    allocate(MIN_CAPACITY);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    int slot = slot(key);
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  V put(long key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value is null");
+    }
+    int slot = slot(key);
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        final V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > (values.length >> 1) + (values.length >> 2)) {
+      rehash(values.length << 1);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  V remove(long key) {
+    int slot = slot(key);
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        final V previous = (V) values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Returns the key stored at {@code slot}, valid while {@link #valueAt} is non-null.
+   * Together with {@link #capacity} this allows iterating without an iterator object.
+   */
+  long keyAt(int slot) {
+    return keys[slot];
+  }
+
+  @SuppressWarnings("unchecked")
+  V valueAt(int slot) {
+    return (V) values[slot];
+  }
+
+  int capacity() {
+    return values.length;
+  }
+
+  private void shiftBack(int slot) {
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (values[next] != null) {
+      final int home = slot(keys[next]);
+      // move the entry into the gap unless its home lies cyclically in (gap, next]
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[gap] = null;
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = keys;
+    final Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = slot(oldKeys[i]);
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
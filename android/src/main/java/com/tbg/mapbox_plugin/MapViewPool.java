@@ -0,0 +1,166 @@
+package com.tbg.mapbox_plugin;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.Mapbox;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.MapboxMapOptions;
+import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
+import com.mapbox.mapboxsdk.maps.Style;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in pool of pre-warmed map views shared by the maps of the plugin.
+ *
+ * Once configured with a size, the views are created one per idle pass of the main
+ * looper, so the inflation of the view and the setup of its native map happen while
+ * the app is idle. Each view has its style queued, which loads as soon as the view
+ * first gets a surface. A disposed map returns its view, which reloads the style of
+ * the map to drop the annotation, source and layer additions of the map; as the view
+ * keeps its surface setup, the reload runs while the view is idle in the pool, and
+ * reopening a map screen with that style skips both the view setup and the style load.
+ *
+ * Pooled views are created with the default options of the plugin; the options of a
+ * map are applied once its view is handed out. Idle views are kept in the created
+ * state; the controller holding a view drives it through the activity lifecycle.
+ */
+class MapViewPool implements MessageQueue.IdleHandler {
+  private static final String TAG = "MapViewPool";
+
+  /** An idle view of the pool, with the style it has loaded or queued. */
+  static final class PooledView {
+    final MapView mapView;
+    final String styleString;
+
+    PooledView(MapView mapView, String styleString) {
+      this.mapView = mapView;
+      this.styleString = styleString;
+    }
+  }
+
+  private final Context context;
+  private final List<PooledView> idleViews = new ArrayList<>();
+  private int size = 0;
+  private String styleString = Style.MAPBOX_STREETS;
+  private boolean idleHandlerQueued = false;
+
+  MapViewPool(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Sets the number of views to keep ready and the style they load. Missing views are
+   * created during idle time, views in excess are destroyed.
+   */
+  void configure(int size, String styleString) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Invalid pool size: " + size);
+    }
+    this.size = size;
+    if (styleString != null) {
+      this.styleString = styleString;
+    }
+    while (idleViews.size() > size) {
+      idleViews.remove(idleViews.size() - 1).mapView.onDestroy();
+    }
+    fill();
+  }
+
+  /**
+   * Hands out an idle view, preferably one with the given style, or returns null when
+   * the pool is empty. The pool is refilled during idle time.
+   */
+  PooledView acquire(String styleString) {
+    if (idleViews.isEmpty()) {
+      return null;
+    }
+    int index = idleViews.size() - 1;
+    for (int i = 0; i < idleViews.size(); i++) {
+      if (idleViews.get(i).styleString.equals(styleString)) {
+        index = i;
+        break;
+      }
+    }
+    final PooledView pooledView = idleViews.remove(index);
+    fill();
+    return pooledView;
+  }
+
+  /**
+   * Takes back the stopped view of a disposed map and reloads its style, or the style
+   * of the pool when the map had none. Returns false when the pool is full, in which
+   * case the caller destroys the view.
+   */
+  boolean release(MapView mapView, String styleString) {
+    if (idleViews.size() >= size) {
+      return false;
+    }
+    final ViewGroup parent = (ViewGroup) mapView.getParent();
+    if (parent != null) {
+      parent.removeView(mapView);
+    }
+    if (styleString == null) {
+      styleString = this.styleString;
+    }
+    loadStyle(mapView, styleString);
+    idleViews.add(new PooledView(mapView, styleString));
+    return true;
+  }
+
+  /** Destroys the idle views, when the activity they were created with goes away. */
+  void clear() {
+    for (PooledView pooledView : idleViews) {
+      pooledView.mapView.onDestroy();
+    }
+    idleViews.clear();
+    size = 0;
+  }
+
+  @Override
+  public boolean queueIdle() {
+    if (idleViews.size() >= size) {
+      idleHandlerQueued = false;
+      return false;
+    }
+    Mapbox.getInstance(context, MapboxMapController.getAccessToken(context));
+    final MapView mapView = new MapView(context, new MapboxMapOptions()
+      .textureMode(true)
+      .attributionEnabled(false));
+    mapView.onCreate(null);
+    loadStyle(mapView, styleString);
+    idleViews.add(new PooledView(mapView, styleString));
+    // one view per idle pass, so a frame is never held up by more than one
+    idleHandlerQueued = idleViews.size() < size;
+    return idleHandlerQueued;
+  }
+
+  private void fill() {
+    if (!idleHandlerQueued && idleViews.size() < size) {
+      idleHandlerQueued = true;
+      Looper.myQueue().addIdleHandler(this);
+    }
+  }
+
+  private static void loadStyle(MapView mapView, final String styleString) {
+    mapView.getMapAsync(new OnMapReadyCallback() {
+      @Override
+      public void onMapReady(@NonNull MapboxMap mapboxMap) {
+        final Style.Builder styleBuilder = StyleRegistry.toStyleBuilder(styleString);
+        if (styleBuilder == null) {
+          Log.e(TAG, "Pooled view style not registered: " + styleString);
+          return;
+        }
+        mapboxMap.setStyle(styleBuilder);
+      }
+    });
+  }
+}
@@ -12,6 +12,7 @@ import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.maps.MapboxMapOptions;
 import com.mapbox.mapboxsdk.maps.Style;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import io.flutter.plugin.common.PluginRegistry;
@@ -23,23 +24,31 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     .textureMode(true)
     .attributionEnabled(false);
   private boolean trackCameraPosition = false;
+  private int cameraMoveEventRate = 0;
   private boolean myLocationEnabled = false;
   private int myLocationTrackingMode = 0;
     private Object initialMarkers;
+  private List<?> annotationTypes;
   private String styleString = Style.MAPBOX_STREETS;
 
   MapboxMapController build(
-    int id, Context context, AtomicInteger state, PluginRegistry.Registrar registrar) {
+    int id, Context context, AtomicInteger state, PluginRegistry.Registrar registrar, MapViewPool mapViewPool) {
     final MapboxMapController controller =
-      new MapboxMapController(id, context, state, registrar, options, styleString);
+      new MapboxMapController(id, context, state, registrar, options, styleString, mapViewPool);
     controller.init();
+    controller.setAnnotationTypes(annotationTypes);
     controller.setMyLocationEnabled(myLocationEnabled);
     controller.setMyLocationTrackingMode(myLocationTrackingMode);
     controller.setTrackCameraPosition(trackCameraPosition);
+    controller.setCameraMoveEventRate(cameraMoveEventRate);
       controller.setInitialMarkers(initialMarkers);
     return controller;
   }
 
+  void setAnnotationTypes(List<?> annotationTypes) {
+    this.annotationTypes = annotationTypes;
+  }
+
   public void setInitialCameraPosition(CameraPosition position) {
     options.camera(position);
   }
@@ -77,6 +86,11 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     this.trackCameraPosition = trackCameraPosition;
   }
 
+  @Override
+  public void setCameraMoveEventRate(int cameraMoveEventRate) {
+    this.cameraMoveEventRate = cameraMoveEventRate;
+  }
+
   @Override
   public void setRotateGesturesEnabled(boolean rotateGesturesEnabled) {
     options.rotateGesturesEnabled(rotateGesturesEnabled);
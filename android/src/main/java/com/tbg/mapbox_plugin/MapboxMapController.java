@@ -9,9 +9,12 @@ import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.PointF;
 import android.graphics.RectF;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 
@@ -22,6 +25,7 @@ import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdate;
+import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.location.LocationComponent;
@@ -33,16 +37,22 @@ import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.MapboxMapOptions;
 import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.maps.UiSettings;
 import com.mapbox.mapboxsdk.plugins.annotation.Annotation;
 import com.mapbox.mapboxsdk.plugins.annotation.Circle;
 import com.mapbox.mapboxsdk.plugins.annotation.CircleManager;
+import com.mapbox.mapboxsdk.plugins.annotation.CircleOptions;
 import com.mapbox.mapboxsdk.plugins.annotation.Line;
 import com.mapbox.mapboxsdk.plugins.annotation.LineManager;
+import com.mapbox.mapboxsdk.plugins.annotation.LineOptions;
 import com.mapbox.mapboxsdk.plugins.annotation.OnAnnotationClickListener;
 import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
 import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
+import com.mapbox.mapboxsdk.plugins.annotation.SymbolOptions;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -82,19 +92,31 @@ final class MapboxMapController
   OnCircleTappedListener,
   PlatformView {
   private static final String TAG = "MapboxMapController";
+  private static final long MIN_RENDER_STATS_INTERVAL_MILLIS = 250;
   private final int id;
   private final AtomicInteger activityState;
   private final MethodChannel methodChannel;
   private final PluginRegistry.Registrar registrar;
   private final MapView mapView;
+  private final MapboxMapOptions options;
+  private final MapViewPool mapViewPool;
+  // the style the view came with from the pool, null for a view created for this map
+  private final String pooledStyleString;
   private MapboxMap mapboxMap;
-  private final Map<String, SymbolController> symbols;
-  private final Map<String, LineController> lines;
-  private final Map<String, CircleController> circles;
+  private final LongObjectMap<SymbolController> symbols;
+  private final LongObjectMap<LineController> lines;
+  private final LongObjectMap<CircleController> circles;
   private SymbolManager symbolManager;
   private LineManager lineManager;
   private CircleManager circleManager;
   private boolean trackCameraPosition = false;
+  // 0 relays every move, a negative rate only the final position on idle,
+  // otherwise the max number of camera#onMove events per second.
+  private int cameraMoveEventRate = 0;
+  private long lastCameraMoveEventTime = 0;
+  // reused for every camera event, the codec copies it when the message is encoded
+  private final double[] packedCameraPosition = new double[5];
+  private boolean cameraMovePending = false;
   private boolean myLocationEnabled = false;
   private int myLocationTrackingMode = 0;
   private boolean disposed = false;
@@ -102,10 +124,25 @@ final class MapboxMapController
   private MethodChannel.Result mapReadyResult;
   private final int registrarActivityHashCode;
   private final Context context;
+  private final ChannelMetrics metrics = new ChannelMetrics();
+  private final RenderStats renderStats;
+  // interval of the map#onRenderStats events, 0 when they are not sent
+  private long renderStatsIntervalMillis = 0;
   private final MarkersController markersController;
+  private final SourcesController sourcesController;
+  private final ClustersController clustersController;
+  private final AnnotationIndex annotationIndex;
+  private final VirtualSymbolsController virtualSymbols;
+  private final LineSimplifier lineSimplifier;
   private List<Object> initialMarkers;
   private final String styleStringInitial;
+  // annotation types whose managers are created as soon as a style loads
+  private int annotationTypeMask = 0;
+  private String styleString;
   private LocationComponent locationComponent = null;
+  // images registered through style#addImages, re-added whenever a style loads
+  private final HashMap<String, Bitmap> styleImages = new HashMap<>();
+  private final HashMap<String, Bitmap> sdfStyleImages = new HashMap<>();
 
   MapboxMapController(
     int id,
@@ -113,23 +150,39 @@ final class MapboxMapController
     AtomicInteger activityState,
     PluginRegistry.Registrar registrar,
     MapboxMapOptions options,
-    String styleStringInitial) {
+    String styleStringInitial,
+    MapViewPool mapViewPool) {
     Mapbox.getInstance(context, getAccessToken(context));
     this.id = id;
     this.context = context;
     this.activityState = activityState;
     this.registrar = registrar;
     this.styleStringInitial = styleStringInitial;
-    this.mapView = new MapView(context, options);
-    this.symbols = new HashMap<>();
-    this.lines = new HashMap<>();
-    this.circles = new HashMap<>();
+    this.options = options;
+    this.mapViewPool = mapViewPool;
+    final MapViewPool.PooledView pooledView = mapViewPool.acquire(styleStringInitial);
+    if (pooledView != null) {
+      this.mapView = pooledView.mapView;
+      this.pooledStyleString = pooledView.styleString;
+    } else {
+      this.mapView = new MapView(context, options);
+      this.pooledStyleString = null;
+    }
+    this.renderStats = new RenderStats(context, mapView, pooledView != null);
+    this.symbols = new LongObjectMap<>();
+    this.lines = new LongObjectMap<>();
+    this.circles = new LongObjectMap<>();
     this.density = context.getResources().getDisplayMetrics().density;
     methodChannel =
             new MethodChannel(registrar.messenger(), "plugins.flutter.io/mapbox_plugin_" + id);
     methodChannel.setMethodCallHandler(this);
     this.registrarActivityHashCode = registrar.activity().hashCode();
-    this.markersController = new MarkersController(methodChannel);
+    this.markersController = new MarkersController(methodChannel, metrics);
+    this.sourcesController = new SourcesController();
+    this.clustersController = new ClustersController();
+    this.annotationIndex = new AnnotationIndex();
+    this.virtualSymbols = new VirtualSymbolsController(annotationIndex);
+    this.lineSimplifier = new LineSimplifier();
   }
 
  /* private static String getAccessToken(@NonNull Context context) {
@@ -145,7 +198,7 @@ final class MapboxMapController
     return null;
   }*/
 
-    private static String getAccessToken(@NonNull Context context) {
+    static String getAccessToken(@NonNull Context context) {
         return "sk.eyJ1IjoiZ2F1dHk5NiIsImEiOiJjanRwb3kzM2MwNmNvNGRsbHppazFyZDVtIn0.LxiJTXf8eV1v5n4f2_es0A";
     }
 
@@ -157,29 +210,29 @@ final class MapboxMapController
   void init() {
     switch (activityState.get()) {
       case STOPPED:
-        mapView.onCreate(null);
+        createMapView();
         mapView.onStart();
         mapView.onResume();
         mapView.onPause();
         mapView.onStop();
         break;
       case PAUSED:
-        mapView.onCreate(null);
+        createMapView();
         mapView.onStart();
         mapView.onResume();
         mapView.onPause();
         break;
       case RESUMED:
-        mapView.onCreate(null);
+        createMapView();
         mapView.onStart();
         mapView.onResume();
         break;
       case STARTED:
-        mapView.onCreate(null);
+        createMapView();
         mapView.onStart();
         break;
       case CREATED:
-        mapView.onCreate(null);
+        createMapView();
         break;
       case DESTROYED:
         mapboxMap.removeOnCameraIdleListener(this);
@@ -195,6 +248,31 @@ final class MapboxMapController
     mapView.getMapAsync(this);
   }
 
+  /** Creates the view unless it comes from the pool, which keeps its views created. */
+  private void createMapView() {
+    if (pooledStyleString == null) {
+      mapView.onCreate(null);
+    }
+  }
+
+  /**
+   * Applies the creation options of the map to a view from the pool, which was created
+   * with the default options.
+   */
+  private void applyPooledViewOptions() {
+    if (options.getCamera() != null) {
+      mapboxMap.moveCamera(CameraUpdateFactory.newCameraPosition(options.getCamera()));
+    }
+    final UiSettings uiSettings = mapboxMap.getUiSettings();
+    uiSettings.setCompassEnabled(options.getCompassEnabled());
+    uiSettings.setRotateGesturesEnabled(options.getRotateGesturesEnabled());
+    uiSettings.setScrollGesturesEnabled(options.getScrollGesturesEnabled());
+    uiSettings.setTiltGesturesEnabled(options.getTiltGesturesEnabled());
+    uiSettings.setZoomGesturesEnabled(options.getZoomGesturesEnabled());
+    mapboxMap.setMinZoomPreference(options.getMinZoomPreference());
+    mapboxMap.setMaxZoomPreference(options.getMaxZoomPreference());
+  }
+
   private void moveCamera(CameraUpdate cameraUpdate) {
     mapboxMap.moveCamera(cameraUpdate);
   }
@@ -208,17 +286,18 @@ final class MapboxMapController
   }
 
   private SymbolBuilder newSymbolBuilder() {
-    return new SymbolBuilder(symbolManager);
+    return new SymbolBuilder(symbolManager());
   }
   
-  private void removeSymbol(String symbolId) {
+  private void removeSymbol(long symbolId) {
     final SymbolController symbolController = symbols.remove(symbolId);
     if (symbolController != null) {
       symbolController.remove(symbolManager);
+      annotationIndex.remove(AnnotationIndex.SYMBOL, symbolId);
     }
   }
   
-  private SymbolController symbol(String symbolId) {
+  private SymbolController symbol(long symbolId) {
     final SymbolController symbol = symbols.get(symbolId);
     if (symbol == null) {
       throw new IllegalArgumentException("Unknown symbol: " + symbolId);
@@ -227,17 +306,19 @@ final class MapboxMapController
   }
   
   private LineBuilder newLineBuilder() {
-    return new LineBuilder(lineManager);
+    return new LineBuilder(lineManager());
   }
   
-  private void removeLine(String lineId) {
+  private void removeLine(long lineId) {
     final LineController lineController = lines.remove(lineId);
     if (lineController != null) {
       lineController.remove(lineManager);
+      annotationIndex.remove(AnnotationIndex.LINE, lineId);
+      lineSimplifier.remove(lineId);
     }
   }
   
-  private LineController line(String lineId) {
+  private LineController line(long lineId) {
     final LineController line = lines.get(lineId);
     if (line == null) {
       throw new IllegalArgumentException("Unknown line: " + lineId);
@@ -245,25 +326,304 @@ final class MapboxMapController
     return line;
   }
 
+  /**
+   * Starts, refreshes or stops the simplification of a line according to the
+   * "simplify" flag of the options just applied to it. A line whose simplification
+   * stops gets its full geometry back and needs an update.
+   */
+  private void updateLineSimplification(Line line, Object options) {
+    final Map<?, ?> data = Convert.toMap(options);
+    final Object simplify = data.get("simplify");
+    final boolean hasGeometry = data.get("geometry") != null;
+    if (simplify == null) {
+      if (hasGeometry && lineSimplifier.contains(line.getId())) {
+        lineSimplifier.put(line);
+      }
+    } else if (Convert.toBoolean(simplify)) {
+      if (hasGeometry || !lineSimplifier.contains(line.getId())) {
+        lineSimplifier.put(line);
+      }
+    } else {
+      lineSimplifier.remove(line, !hasGeometry);
+    }
+  }
+
+  /** Parses the simplification settings of line options without applying them. */
+  private static void checkLineSimplification(Object options) {
+    final Object simplify = Convert.toMap(options).get("simplify");
+    if (simplify != null) {
+      Convert.toBoolean(simplify);
+    }
+  }
+
   private CircleBuilder newCircleBuilder() {
-    return new CircleBuilder(circleManager);
+    return new CircleBuilder(circleManager());
   }
     
-  private void removeCircle(String circleId) {
+  private void removeCircle(long circleId) {
     final CircleController circleController = circles.remove(circleId);
     if (circleController != null) {
       circleController.remove(circleManager);
+      annotationIndex.remove(AnnotationIndex.CIRCLE, circleId);
     }
   }
 
-  private CircleController circle(String circleId) {
+  private static void checkUpdateAllArguments(List<String> ids, List<Object> options) {
+    if (ids == null || options == null) {
+      throw new IllegalArgumentException("Missing ids or options");
+    }
+    if (ids.size() != options.size()) {
+      throw new IllegalArgumentException("Got " + ids.size() + " ids but " + options.size() + " options");
+    }
+  }
+
+  private CircleController circle(long circleId) {
     final CircleController circle = circles.get(circleId);
     if (circle == null) {
-      throw new IllegalArgumentException("Unknown symbol: " + circleId);
+      throw new IllegalArgumentException("Unknown circle: " + circleId);
     }
     return circle;
   }
 
+  /**
+   * Checks the symbol changes of an annotations#apply call without touching any symbol:
+   * every id is parsed, every symbol to change must exist and every option is parsed.
+   * Returns the options of the symbols to add.
+   */
+  private List<SymbolOptions> prepareSymbolChanges(List<Object> toAdd, List<Object> toChange, List<Object> idsToRemove) {
+    if (idsToRemove != null) {
+      for (Object rawSymbolId : idsToRemove) {
+        Convert.toAnnotationId(rawSymbolId);
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        final long symbolId = Convert.toAnnotationId(data.get("symbol"));
+        if (VirtualSymbolsController.isVirtualId(symbolId)) {
+          if (!virtualSymbols.contains(symbolId)) {
+            throw new IllegalArgumentException("Unknown symbol: " + symbolId);
+          }
+        } else {
+          symbol(symbolId);
+        }
+        Convert.interpretSymbolOptions(data.get("options"), new SymbolBuilder(symbolManager));
+      }
+    }
+    final List<SymbolOptions> symbolOptionsList = new ArrayList<>(toAdd == null ? 0 : toAdd.size());
+    if (toAdd != null) {
+      for (Object o : toAdd) {
+        final SymbolBuilder symbolBuilder = new SymbolBuilder(symbolManager);
+        Convert.interpretSymbolOptions(o, symbolBuilder);
+        symbolOptionsList.add(symbolBuilder.getSymbolOptions());
+      }
+    }
+    return symbolOptionsList;
+  }
+
+  /**
+   * Applies removals, changes and additions of symbols checked by
+   * {@link #prepareSymbolChanges} with a single refresh of the symbol source. Removed
+   * and changed symbols are edited in place; the refresh is done by the bulk create
+   * when there are additions, otherwise by updateSource. A symbol both removed and
+   * changed stays removed.
+   */
+  private List<String> applySymbolChanges(List<SymbolOptions> symbolOptionsList, List<Object> toChange, List<Object> idsToRemove) {
+    final List<String> newSymbolIds = new ArrayList<>();
+    boolean changed = false;
+    if (idsToRemove != null) {
+      for (Object rawSymbolId : idsToRemove) {
+        final long symbolId = Convert.toAnnotationId(rawSymbolId);
+        if (VirtualSymbolsController.isVirtualId(symbolId)) {
+          changed |= virtualSymbols.removeWithoutRefresh(symbolId);
+          continue;
+        }
+        final SymbolController symbolController = symbols.remove(symbolId);
+        if (symbolController != null) {
+          symbolManager.getAnnotations().remove(symbolController.getSymbol().getId());
+          annotationIndex.remove(AnnotationIndex.SYMBOL, symbolController.getSymbol().getId());
+          changed = true;
+        }
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        final long symbolId = Convert.toAnnotationId(data.get("symbol"));
+        if (VirtualSymbolsController.isVirtualId(symbolId)) {
+          if (virtualSymbols.contains(symbolId)) {
+            changed |= virtualSymbols.change(symbolId, data.get("options"));
+          }
+          continue;
+        }
+        final SymbolController symbolController = symbols.get(symbolId);
+        if (symbolController == null) {
+          continue;
+        }
+        Convert.interpretSymbolOptions(data.get("options"), symbolController);
+        annotationIndex.put(symbolController.getSymbol());
+        changed = true;
+      }
+    }
+    if (!symbolOptionsList.isEmpty()) {
+      final List<Symbol> newSymbols = symbolManager().create(symbolOptionsList);
+      annotationIndex.putAll(newSymbols);
+      for (Symbol symbol : newSymbols) {
+        final String symbolId = String.valueOf(symbol.getId());
+        symbols.put(symbol.getId(), new SymbolController(symbol, true, this));
+        newSymbolIds.add(symbolId);
+      }
+    } else if (changed) {
+      symbolManager.updateSource();
+    }
+    return newSymbolIds;
+  }
+
+  /**
+   * Line counterpart of {@link #prepareSymbolChanges}.
+   */
+  private List<LineOptions> prepareLineChanges(List<Object> toAdd, List<Object> toChange, List<Object> idsToRemove) {
+    if (idsToRemove != null) {
+      for (Object rawLineId : idsToRemove) {
+        Convert.toAnnotationId(rawLineId);
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        line(Convert.toAnnotationId(data.get("line")));
+        Convert.interpretLineOptions(data.get("options"), new LineBuilder(lineManager));
+        checkLineSimplification(data.get("options"));
+      }
+    }
+    final List<LineOptions> lineOptionsList = new ArrayList<>(toAdd == null ? 0 : toAdd.size());
+    if (toAdd != null) {
+      for (Object o : toAdd) {
+        final LineBuilder lineBuilder = new LineBuilder(lineManager);
+        Convert.interpretLineOptions(o, lineBuilder);
+        checkLineSimplification(o);
+        lineOptionsList.add(lineBuilder.getLineOptions());
+      }
+    }
+    return lineOptionsList;
+  }
+
+  /**
+   * Line counterpart of {@link #applySymbolChanges}; the raw options to add carry the
+   * simplification settings of the new lines.
+   */
+  private List<String> applyLineChanges(List<LineOptions> lineOptionsList, List<Object> toAdd, List<Object> toChange, List<Object> idsToRemove) {
+    final List<String> newLineIds = new ArrayList<>();
+    boolean changed = false;
+    if (idsToRemove != null) {
+      for (Object rawLineId : idsToRemove) {
+        final LineController lineController = lines.remove(Convert.toAnnotationId(rawLineId));
+        if (lineController != null) {
+          lineManager.getAnnotations().remove(lineController.getLine().getId());
+          annotationIndex.remove(AnnotationIndex.LINE, lineController.getLine().getId());
+          lineSimplifier.remove(lineController.getLine().getId());
+          changed = true;
+        }
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        final LineController lineController = lines.get(Convert.toAnnotationId(data.get("line")));
+        if (lineController == null) {
+          continue;
+        }
+        Convert.interpretLineOptions(data.get("options"), lineController);
+        annotationIndex.put(lineController.getLine());
+        updateLineSimplification(lineController.getLine(), data.get("options"));
+        changed = true;
+      }
+    }
+    if (!lineOptionsList.isEmpty()) {
+      final List<Line> newLines = lineManager().create(lineOptionsList);
+      annotationIndex.putAll(newLines);
+      for (int i = 0; i < newLines.size(); i++) {
+        final Line line = newLines.get(i);
+        final String lineId = String.valueOf(line.getId());
+        lines.put(line.getId(), new LineController(line, true, this));
+        updateLineSimplification(line, toAdd.get(i));
+        newLineIds.add(lineId);
+      }
+    } else if (changed) {
+      lineManager.updateSource();
+    }
+    return newLineIds;
+  }
+
+  /**
+   * Circle counterpart of {@link #prepareSymbolChanges}.
+   */
+  private List<CircleOptions> prepareCircleChanges(List<Object> toAdd, List<Object> toChange, List<Object> idsToRemove) {
+    if (idsToRemove != null) {
+      for (Object rawCircleId : idsToRemove) {
+        Convert.toAnnotationId(rawCircleId);
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        circle(Convert.toAnnotationId(data.get("circle")));
+        Convert.interpretCircleOptions(data.get("options"), new CircleBuilder(circleManager));
+      }
+    }
+    final List<CircleOptions> circleOptionsList = new ArrayList<>(toAdd == null ? 0 : toAdd.size());
+    if (toAdd != null) {
+      for (Object o : toAdd) {
+        final CircleBuilder circleBuilder = new CircleBuilder(circleManager);
+        Convert.interpretCircleOptions(o, circleBuilder);
+        circleOptionsList.add(circleBuilder.getCircleOptions());
+      }
+    }
+    return circleOptionsList;
+  }
+
+  /**
+   * Circle counterpart of {@link #applySymbolChanges}.
+   */
+  private List<String> applyCircleChanges(List<CircleOptions> circleOptionsList, List<Object> toChange, List<Object> idsToRemove) {
+    final List<String> newCircleIds = new ArrayList<>();
+    boolean changed = false;
+    if (idsToRemove != null) {
+      for (Object rawCircleId : idsToRemove) {
+        final CircleController circleController = circles.remove(Convert.toAnnotationId(rawCircleId));
+        if (circleController != null) {
+          circleManager.getAnnotations().remove(circleController.getCircle().getId());
+          annotationIndex.remove(AnnotationIndex.CIRCLE, circleController.getCircle().getId());
+          changed = true;
+        }
+      }
+    }
+    if (toChange != null) {
+      for (Object change : toChange) {
+        final Map<?, ?> data = Convert.toMap(change);
+        final CircleController circleController = circles.get(Convert.toAnnotationId(data.get("circle")));
+        if (circleController == null) {
+          continue;
+        }
+        Convert.interpretCircleOptions(data.get("options"), circleController);
+        annotationIndex.put(circleController.getCircle());
+        changed = true;
+      }
+    }
+    if (!circleOptionsList.isEmpty()) {
+      final List<Circle> newCircles = circleManager().create(circleOptionsList);
+      annotationIndex.putAll(newCircles);
+      for (Circle circle : newCircles) {
+        final String circleId = String.valueOf(circle.getId());
+        circles.put(circle.getId(), new CircleController(circle, true, this));
+        newCircleIds.add(circleId);
+      }
+    } else if (changed) {
+      circleManager.updateSource();
+    }
+    return newCircleIds;
+  }
+
   @Override
   public void onMapReady(MapboxMap mapboxMap) {
     this.mapboxMap = mapboxMap;
@@ -274,38 +634,145 @@ final class MapboxMapController
     mapboxMap.addOnCameraMoveStartedListener(this);
     mapboxMap.addOnCameraMoveListener(this);
     mapboxMap.addOnCameraIdleListener(this);
-    setStyleString(styleStringInitial);
+    if (pooledStyleString != null) {
+      applyPooledViewOptions();
+    }
+    if (styleStringInitial.equals(pooledStyleString)) {
+      // the pooled view has loaded or is loading this style already
+      styleString = styleStringInitial;
+      final Style style = mapboxMap.getStyle();
+      if (style != null && style.isFullyLoaded()) {
+        renderStats.onMapLoadedBeforeHandoff();
+      }
+      mapboxMap.getStyle(onStyleLoadedCallback);
+    } else {
+      setStyleString(styleStringInitial);
+    }
     mapboxMap.setOnMarkerClickListener(this);
     markersController.setmapboxMap(mapboxMap);
+    sourcesController.setMapboxMap(mapboxMap);
+    clustersController.setMapboxMap(mapboxMap);
+    virtualSymbols.setMapboxMap(mapboxMap);
     updateInitialMarkers();
     // updateMyLocationEnabled();
   }
 
   @Override
   public void setStyleString(String styleString) {
-    //check if json, url or plain string:
+    //check if json, url, registered key or plain string:
     if (styleString == null || styleString.isEmpty()) {
       Log.e(TAG, "setStyleString - string empty or null");
-    } else if (styleString.startsWith("{") || styleString.startsWith("[")) {
-      mapboxMap.setStyle(new Style.Builder().fromJson(styleString), onStyleLoadedCallback);
-    } else {
-      mapboxMap.setStyle(new Style.Builder().fromUrl(styleString), onStyleLoadedCallback);
+      return;
+    }
+    final Style.Builder styleBuilder = StyleRegistry.toStyleBuilder(styleString);
+    if (styleBuilder == null) {
+      Log.e(TAG, "setStyleString - style not registered: " + styleString);
+      return;
     }
+    this.styleString = styleString;
+    mapboxMap.setStyle(styleBuilder, onStyleLoadedCallback);
   }
 
   Style.OnStyleLoaded onStyleLoadedCallback = new Style.OnStyleLoaded() {
     @Override
     public void onStyleLoaded(@NonNull Style style) {
-      enableLineManager(style);
-      enableSymbolManager(style);
-      enableCircleManager(style);
-      enableLocationComponent(style);
-      // needs to be placed after SymbolManager#addClickListener,
-      // is fixed with 0.6.0 of annotations plugin
-      mapboxMap.addOnMapClickListener(MapboxMapController.this);
+      addStyleImages(style, styleImages, sdfStyleImages);
+      createDeclaredAnnotationManagers();
+      if (myLocationEnabled) {
+        enableLocationComponent(style);
+      }
+      addMapClickListenerLast();
     }
   };
 
+  /**
+   * Registers the controller as map click listener behind the click resolvers of the
+   * annotation managers, which register themselves when created. The SDK stops at the
+   * first listener consuming a click, so an annotation tap reaches its manager and is
+   * not reported as a map click. Registering again moves the listener to the end.
+   */
+  private void addMapClickListenerLast() {
+    mapboxMap.removeOnMapClickListener(this);
+    mapboxMap.addOnMapClickListener(this);
+  }
+
+  private static void addStyleImages(Style style, HashMap<String, Bitmap> images, HashMap<String, Bitmap> sdfImages) {
+    if (!images.isEmpty()) {
+      style.addImages(images);
+    }
+    if (!sdfImages.isEmpty()) {
+      style.addImages(sdfImages, true);
+    }
+  }
+
+  /**
+   * Decodes the requested images on a background thread, then registers them with the
+   * current style in one call and remembers them for later style loads.
+   */
+  private void addStyleImages(final List<Object> images, final MethodChannel.Result result) {
+    BackgroundTasks.execute(new Runnable() {
+      @Override
+      public void run() {
+        final HashMap<String, Bitmap> decoded = new HashMap<>();
+        final HashMap<String, Bitmap> decodedSdf = new HashMap<>();
+        try {
+          for (Object image : images) {
+            final Map<?, ?> data = Convert.toMap(image);
+            final Bitmap bitmap = decodeStyleImage(data);
+            final Object sdf = data.get("sdf");
+            if (sdf != null && (Boolean) sdf) {
+              decodedSdf.put((String) data.get("name"), bitmap);
+            } else {
+              decoded.put((String) data.get("name"), bitmap);
+            }
+          }
+        } catch (final Exception e) {
+          BackgroundTasks.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+              result.error("IMAGE_DECODE_FAILED", e.getMessage(), null);
+            }
+          });
+          return;
+        }
+        BackgroundTasks.runOnMainThread(new Runnable() {
+          @Override
+          public void run() {
+            if (disposed) {
+              result.success(null);
+              return;
+            }
+            styleImages.putAll(decoded);
+            sdfStyleImages.putAll(decodedSdf);
+            final Style style = mapboxMap.getStyle();
+            if (style != null) {
+              addStyleImages(style, decoded, decodedSdf);
+            }
+            result.success(null);
+          }
+        });
+      }
+    });
+  }
+
+  private Bitmap decodeStyleImage(Map<?, ?> data) throws IOException {
+    final Bitmap bitmap;
+    final Object bytes = data.get("bytes");
+    if (bytes != null) {
+      final byte[] imageData = (byte[]) bytes;
+      bitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
+    } else {
+      final String assetKey = registrar.lookupKeyForAsset((String) data.get("asset"));
+      try (InputStream in = context.getAssets().open(assetKey)) {
+        bitmap = BitmapFactory.decodeStream(in);
+      }
+    }
+    if (bitmap == null) {
+      throw new IllegalArgumentException("Unable to decode image " + data.get("name"));
+    }
+    return bitmap;
+  }
+
   @SuppressWarnings( {"MissingPermission"})
   private void enableLocationComponent(@NonNull Style style) {
     if (hasLocationPermission()) {
@@ -324,35 +791,125 @@ final class MapboxMapController
     }
   }
 
-  private void enableSymbolManager(@NonNull Style style) {
+  /**
+   * Returns the layer below which the manager of an annotation type is created, so that
+   * the managers stack as lines, symbols then circles from the bottom whatever order
+   * they are created in, and below the layers added through layer#add.
+   */
+  private String annotationLayerBelow(Style style, int type) {
+    if (type == AnnotationIndex.LINE && symbolManager != null) {
+      return symbolManager.getLayerId();
+    }
+    if (type != AnnotationIndex.CIRCLE && circleManager != null) {
+      return circleManager.getLayerId();
+    }
+    return sourcesController.lowestLayerId(style);
+  }
+
+  private Style loadedStyle() {
+    final Style style = mapboxMap == null ? null : mapboxMap.getStyle();
+    if (style == null || !style.isFullyLoaded()) {
+      throw new IllegalStateException("The map style is not loaded yet");
+    }
+    return style;
+  }
+
+  /**
+   * Returns the symbol manager, creating it on first use. Like the other managers, it
+   * adds a source and a layer to the style, so maps only pay for the annotation types
+   * they use.
+   */
+  private SymbolManager symbolManager() {
     if (symbolManager == null) {
-      symbolManager = new SymbolManager(mapView, mapboxMap, style);
+      final Style style = loadedStyle();
+      symbolManager = new SymbolManager(mapView, mapboxMap, style,
+        annotationLayerBelow(style, AnnotationIndex.SYMBOL));
       symbolManager.setIconAllowOverlap(true);
       symbolManager.setIconIgnorePlacement(true);
       symbolManager.setTextAllowOverlap(true);
       symbolManager.setTextIgnorePlacement(true);
       symbolManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+      symbolManager.addDragListener(annotationIndex.symbolDragListener());
+      virtualSymbols.setSymbolManager(symbolManager);
+      addMapClickListenerLast();
     }
+    return symbolManager;
   }
 
-  private void enableLineManager(@NonNull Style style) {
+  private LineManager lineManager() {
     if (lineManager == null) {
-      lineManager = new LineManager(mapView, mapboxMap, style);
+      final Style style = loadedStyle();
+      lineManager = new LineManager(mapView, mapboxMap, style,
+        annotationLayerBelow(style, AnnotationIndex.LINE));
       lineManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+      lineManager.addDragListener(annotationIndex.lineDragListener());
+      lineSimplifier.setLineManager(lineManager);
+      addMapClickListenerLast();
     }
+    return lineManager;
   }
-    
-  private void enableCircleManager(@NonNull Style style) {
+
+  private CircleManager circleManager() {
     if (circleManager == null) {
-      circleManager = new CircleManager(mapView, mapboxMap, style);
+      final Style style = loadedStyle();
+      circleManager = new CircleManager(mapView, mapboxMap, style,
+        annotationLayerBelow(style, AnnotationIndex.CIRCLE));
       circleManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+      circleManager.addDragListener(annotationIndex.circleDragListener());
+      addMapClickListenerLast();
     }
+    return circleManager;
   }
 
 
+  /**
+   * Sends an event to the Flutter side of the map, counted in the metrics of the
+   * channel.
+   */
+  private void sendEvent(String method, Object arguments) {
+    metrics.recordEvent(method);
+    methodChannel.invokeMethod(method, arguments);
+  }
+
   @Override
   public void onMethodCall(MethodCall call, MethodChannel.Result result) {
+    final long startNanos = System.nanoTime();
+    try {
+      handleMethodCall(call, metrics.track(call, result));
+    } catch (RuntimeException e) {
+      metrics.recordFailure(call, startNanos);
+      throw e;
+    }
+  }
+
+  private void handleMethodCall(MethodCall call, MethodChannel.Result result) {
     switch (call.method) {
+      case "map#getMetrics": {
+        result.success(metrics.toMap());
+        final Boolean reset = call.argument("reset");
+        if (reset != null && reset) {
+          metrics.reset();
+        }
+        break;
+      }
+      case "map#resetMetrics":
+        metrics.reset();
+        result.success(null);
+        break;
+      case "map#getRenderStats": {
+        result.success(renderStats.toMap());
+        final Boolean reset = call.argument("reset");
+        if (reset != null && reset) {
+          renderStats.reset();
+        }
+        break;
+      }
+      case "map#setRenderStatsInterval": {
+        final Integer intervalMillis = call.argument("intervalMillis");
+        setRenderStatsInterval(intervalMillis == null ? 0 : intervalMillis);
+        result.success(null);
+        break;
+      }
       case "map#waitForMap":
         if (mapboxMap != null) {
           result.success(null);
@@ -362,7 +919,11 @@ final class MapboxMapController
         break;
       case "map#update": {
         Convert.interpretMapboxMapOptions(call.argument("options"), this);
-        result.success(Convert.toJson(getCameraPosition()));
+        result.success(Convert.toPacked(getCameraPosition(), packedCameraPosition));
+        break;
+      }
+      case "style#addImages": {
+        addStyleImages(call.<List<Object>>argument("images"), result);
         break;
       }
       case "camera#move": {
@@ -393,9 +954,100 @@ final class MapboxMapController
         result.success(null);
         break;
       }
+      case "source#addGeoJson": {
+        final Boolean featureStore = call.argument("featureStore");
+        sourcesController.addGeoJsonSource(
+          call.<String>argument("sourceId"),
+          call.<String>argument("geojson"),
+          featureStore != null && featureStore);
+        result.success(null);
+        break;
+      }
+      case "source#setGeoJson": {
+        sourcesController.setGeoJsonSource(call.<String>argument("sourceId"), call.<String>argument("geojson"));
+        result.success(null);
+        break;
+      }
+      case "source#upsertFeatures": {
+        sourcesController.upsertFeatures(call.<String>argument("sourceId"), call.<String>argument("features"));
+        result.success(null);
+        break;
+      }
+      case "source#removeFeatures": {
+        sourcesController.removeFeatures(call.<String>argument("sourceId"), call.<List<Object>>argument("featureIds"));
+        result.success(null);
+        break;
+      }
+      case "source#remove": {
+        sourcesController.removeSource(call.<String>argument("sourceId"));
+        result.success(null);
+        break;
+      }
+      case "layer#add": {
+        sourcesController.addLayer(
+          call.<String>argument("layerId"),
+          call.<String>argument("sourceId"),
+          call.<String>argument("type"),
+          Convert.toLayerProperties(call.argument("properties")),
+          call.<String>argument("belowLayerId"));
+        result.success(null);
+        break;
+      }
+      case "layer#setProperties": {
+        sourcesController.setLayerProperties(
+          call.<String>argument("layerId"),
+          Convert.toLayerProperties(call.argument("properties")));
+        result.success(null);
+        break;
+      }
+      case "layer#remove": {
+        sourcesController.removeLayer(call.<String>argument("layerId"));
+        result.success(null);
+        break;
+      }
+      case "cluster#setPoints": {
+        final Integer minZoom = call.argument("minZoom");
+        final Integer maxZoom = call.argument("maxZoom");
+        final Number radius = call.argument("radius");
+        clustersController.setPoints(
+          call.<String>argument("sourceId"),
+          call.<double[]>argument("points"),
+          call.<List<String>>argument("ids"),
+          call.<List<Object>>argument("properties"),
+          minZoom == null ? 0 : minZoom,
+          maxZoom == null ? 16 : maxZoom,
+          radius == null ? 40 : radius.doubleValue(),
+          result);
+        break;
+      }
+      case "cluster#remove": {
+        clustersController.remove(call.<String>argument("sourceId"));
+        result.success(null);
+        break;
+      }
+      case "cluster#getChildren": {
+        result.success(clustersController.getChildren(
+          call.<String>argument("sourceId"), call.<Integer>argument("clusterId")));
+        break;
+      }
+      case "cluster#getLeaves": {
+        final Integer limit = call.argument("limit");
+        final Integer offset = call.argument("offset");
+        result.success(clustersController.getLeaves(
+          call.<String>argument("sourceId"),
+          call.<Integer>argument("clusterId"),
+          limit == null ? 10 : limit,
+          offset == null ? 0 : offset));
+        break;
+      }
+      case "cluster#getExpansionZoom": {
+        result.success(clustersController.getExpansionZoom(
+          call.<String>argument("sourceId"), call.<Integer>argument("clusterId")));
+        break;
+      }
       case "map#queryRenderedFeatures": {
-        Map<String, Object> reply = new HashMap<>();
-        List<Feature> features;
+        final long queryStart = System.nanoTime();
+        final List<Feature> features;
 
         String[] layerIds = ((List<String>) call.argument("layerIds")).toArray(new String[0]);
 
@@ -415,34 +1067,142 @@ final class MapboxMapController
           RectF rectF = new RectF(left.floatValue(), top.floatValue(), right.floatValue(), bottom.floatValue());
           features = mapboxMap.queryRenderedFeatures(rectF, filterExpression, layerIds);
         }
-        List<String> featuresJson = new ArrayList<>();
-        for (Feature feature : features) {
-          featuresJson.add(feature.toJson());
-        }
-        reply.put("features", featuresJson);
-        result.success(reply);
+        final long queryMicros = (System.nanoTime() - queryStart) / 1000;
+        final Object projection = call.argument("projection");
+        // only the query itself needs the map, encoding happens off the platform thread
+        BackgroundTasks.execute(new Runnable() {
+          @Override
+          public void run() {
+            final long encodeStart = System.nanoTime();
+            final List<Object> featuresJson;
+            try {
+              featuresJson = Convert.featuresToJson(features, projection);
+            } catch (final RuntimeException e) {
+              BackgroundTasks.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                  result.error("QUERY_FAILED", e.getMessage(), null);
+                }
+              });
+              return;
+            }
+            final long encodeMicros = (System.nanoTime() - encodeStart) / 1000;
+            final long postStart = System.nanoTime();
+            BackgroundTasks.runOnMainThread(new Runnable() {
+              @Override
+              public void run() {
+                final Map<String, Object> timings = new HashMap<>(4);
+                timings.put("featureCount", features.size());
+                timings.put("queryMicros", queryMicros);
+                timings.put("encodeMicros", encodeMicros);
+                timings.put("postMicros", (System.nanoTime() - postStart) / 1000);
+                final Map<String, Object> reply = new HashMap<>(2);
+                reply.put("features", featuresJson);
+                reply.put("timings", timings);
+                result.success(reply);
+              }
+            });
+          }
+        });
         break;
       }
       case "symbol#add": {
         final SymbolBuilder symbolBuilder = newSymbolBuilder();
         Convert.interpretSymbolOptions(call.argument("options"), symbolBuilder);
         final Symbol symbol = symbolBuilder.build();
+        annotationIndex.put(symbol);
         final String symbolId = String.valueOf(symbol.getId());
-        symbols.put(symbolId, new SymbolController(symbol, true, this));
+        symbols.put(symbol.getId(), new SymbolController(symbol, true, this));
         result.success(symbolId);
         break;
       }
+      case "annotations#apply": {
+        final List<Object> symbolsToAdd = call.argument("symbolsToAdd");
+        final List<Object> symbolsToChange = call.argument("symbolsToChange");
+        final List<Object> symbolIdsToRemove = call.argument("symbolIdsToRemove");
+        final List<Object> linesToAdd = call.argument("linesToAdd");
+        final List<Object> linesToChange = call.argument("linesToChange");
+        final List<Object> lineIdsToRemove = call.argument("lineIdsToRemove");
+        final List<Object> circlesToAdd = call.argument("circlesToAdd");
+        final List<Object> circlesToChange = call.argument("circlesToChange");
+        final List<Object> circleIdsToRemove = call.argument("circleIdsToRemove");
+        // check everything before applying anything, so a bad entry fails the whole call
+        final List<SymbolOptions> symbolOptionsList = prepareSymbolChanges(symbolsToAdd, symbolsToChange, symbolIdsToRemove);
+        final List<LineOptions> lineOptionsList = prepareLineChanges(linesToAdd, linesToChange, lineIdsToRemove);
+        final List<CircleOptions> circleOptionsList = prepareCircleChanges(circlesToAdd, circlesToChange, circleIdsToRemove);
+        final Map<String, Object> reply = new HashMap<>(3);
+        reply.put("symbols", applySymbolChanges(symbolOptionsList, symbolsToChange, symbolIdsToRemove));
+        reply.put("lines", applyLineChanges(lineOptionsList, linesToAdd, linesToChange, lineIdsToRemove));
+        reply.put("circles", applyCircleChanges(circleOptionsList, circlesToChange, circleIdsToRemove));
+        result.success(reply);
+        break;
+      }
+      case "annotations#queryBox": {
+        final LatLngBounds bounds = Convert.toLatLngBounds(call.argument("bounds"));
+        result.success(annotationIndex.queryBox(
+          bounds.getLatSouth(), bounds.getLonWest(), bounds.getLatNorth(), bounds.getLonEast(),
+          AnnotationIndex.toTypeMask(call.<List<Object>>argument("types"))));
+        break;
+      }
+      case "annotations#nearest": {
+        final Integer count = call.argument("count");
+        final Number maxDistance = call.argument("maxDistance");
+        result.success(annotationIndex.nearest(
+          Convert.toLatLng(call.argument("latLng")),
+          count == null ? 1 : count,
+          maxDistance == null ? Double.POSITIVE_INFINITY : maxDistance.doubleValue(),
+          AnnotationIndex.toTypeMask(call.<List<Object>>argument("types"))));
+        break;
+      }
+      case "symbols#addAll": {
+        final List<String> newSymbolIds = new ArrayList<>();
+        final List<Object> options = call.argument("options");
+        if (options != null) {
+          final List<SymbolOptions> symbolOptionsList = new ArrayList<>(options.size());
+          for (Object o : options) {
+            final SymbolBuilder symbolBuilder = newSymbolBuilder();
+            Convert.interpretSymbolOptions(o, symbolBuilder);
+            symbolOptionsList.add(symbolBuilder.getSymbolOptions());
+          }
+          // a single create call refreshes the symbol source once for the whole batch
+          final List<Symbol> newSymbols = symbolManager().create(symbolOptionsList);
+          annotationIndex.putAll(newSymbols);
+          for (Symbol symbol : newSymbols) {
+            final String symbolId = String.valueOf(symbol.getId());
+            symbols.put(symbol.getId(), new SymbolController(symbol, true, this));
+            newSymbolIds.add(symbolId);
+          }
+        }
+        result.success(newSymbolIds);
+        break;
+      }
+      case "symbols#addVirtual": {
+        // virtual symbols materialize through the symbol manager
+        symbolManager();
+        result.success(virtualSymbols.addAll(call.<List<Object>>argument("options")));
+        break;
+      }
       case "symbol#remove": {
-        final String symbolId = call.argument("symbol");
-        removeSymbol(symbolId);
+        final long symbolId = Convert.toAnnotationId(call.argument("symbol"));
+        if (VirtualSymbolsController.isVirtualId(symbolId)) {
+          virtualSymbols.remove(symbolId);
+        } else {
+          removeSymbol(symbolId);
+        }
         result.success(null);
         break;
       }
       case "symbol#update": {
-        final String symbolId = call.argument("symbol");
+        final long symbolId = Convert.toAnnotationId(call.argument("symbol"));
+        if (VirtualSymbolsController.isVirtualId(symbolId)) {
+          virtualSymbols.update(symbolId, call.argument("options"));
+          result.success(null);
+          break;
+        }
         final SymbolController symbol = symbol(symbolId);
         Convert.interpretSymbolOptions(call.argument("options"), symbol);
         symbol.update(symbolManager);
+        annotationIndex.put(symbol.getSymbol());
         result.success(null);
         break;
       }
@@ -450,22 +1210,76 @@ final class MapboxMapController
         final LineBuilder lineBuilder = newLineBuilder();
         Convert.interpretLineOptions(call.argument("options"), lineBuilder);
         final Line line = lineBuilder.build();
+        annotationIndex.put(line);
         final String lineId = String.valueOf(line.getId());
-        lines.put(lineId, new LineController(line, true, this));
+        lines.put(line.getId(), new LineController(line, true, this));
+        updateLineSimplification(line, call.argument("options"));
         result.success(lineId);
         break;
       }
+      case "lines#addAll": {
+        final List<String> newLineIds = new ArrayList<>();
+        final List<Object> options = call.argument("options");
+        if (options != null) {
+          final List<LineOptions> lineOptionsList = new ArrayList<>(options.size());
+          for (Object o : options) {
+            final LineBuilder lineBuilder = newLineBuilder();
+            Convert.interpretLineOptions(o, lineBuilder);
+            checkLineSimplification(o);
+            lineOptionsList.add(lineBuilder.getLineOptions());
+          }
+          final List<Line> newLines = lineManager().create(lineOptionsList);
+          annotationIndex.putAll(newLines);
+          for (int i = 0; i < newLines.size(); i++) {
+            final Line line = newLines.get(i);
+            final String lineId = String.valueOf(line.getId());
+            lines.put(line.getId(), new LineController(line, true, this));
+            updateLineSimplification(line, options.get(i));
+            newLineIds.add(lineId);
+          }
+        }
+        result.success(newLineIds);
+        break;
+      }
       case "line#remove": {
-        final String lineId = call.argument("line");
-        removeLine(lineId);
+        removeLine(Convert.toAnnotationId(call.argument("line")));
         result.success(null);
         break;
       }
       case "line#update": {
-        final String lineId = call.argument("line");
-        final LineController line = line(lineId);
+        final LineController line = line(Convert.toAnnotationId(call.argument("line")));
         Convert.interpretLineOptions(call.argument("options"), line);
+        updateLineSimplification(line.getLine(), call.argument("options"));
         line.update(lineManager);
+        annotationIndex.put(line.getLine());
+        result.success(null);
+        break;
+      }
+      case "lines#updateAll": {
+        final List<String> lineIds = call.argument("lines");
+        final List<Object> options = call.argument("options");
+        checkUpdateAllArguments(lineIds, options);
+        if (lineIds.isEmpty()) {
+          // the line manager is only created with the first line
+          result.success(null);
+          break;
+        }
+        // resolve and parse everything first, so a bad entry leaves every line untouched
+        final List<LineController> lineControllers = new ArrayList<>(lineIds.size());
+        for (int i = 0; i < lineIds.size(); i++) {
+          lineControllers.add(line(Convert.toAnnotationId(lineIds.get(i))));
+          Convert.interpretLineOptions(options.get(i), new LineBuilder(lineManager));
+          checkLineSimplification(options.get(i));
+        }
+        final List<Line> changedLines = new ArrayList<>(lineIds.size());
+        for (int i = 0; i < lineIds.size(); i++) {
+          final LineController line = lineControllers.get(i);
+          Convert.interpretLineOptions(options.get(i), line);
+          updateLineSimplification(line.getLine(), options.get(i));
+          changedLines.add(line.getLine());
+        }
+        lineManager.update(changedLines);
+        annotationIndex.putAll(changedLines);
         result.success(null);
         break;
       }
@@ -473,23 +1287,70 @@ final class MapboxMapController
         final CircleBuilder circleBuilder = newCircleBuilder();
         Convert.interpretCircleOptions(call.argument("options"), circleBuilder);
         final Circle circle = circleBuilder.build();
+        annotationIndex.put(circle);
         final String circleId = String.valueOf(circle.getId());
-        circles.put(circleId, new CircleController(circle, true, this));
+        circles.put(circle.getId(), new CircleController(circle, true, this));
         result.success(circleId);
         break;
       }
+      case "circles#addAll": {
+        final List<String> newCircleIds = new ArrayList<>();
+        final List<Object> options = call.argument("options");
+        if (options != null) {
+          final List<CircleOptions> circleOptionsList = new ArrayList<>(options.size());
+          for (Object o : options) {
+            final CircleBuilder circleBuilder = newCircleBuilder();
+            Convert.interpretCircleOptions(o, circleBuilder);
+            circleOptionsList.add(circleBuilder.getCircleOptions());
+          }
+          final List<Circle> newCircles = circleManager().create(circleOptionsList);
+          annotationIndex.putAll(newCircles);
+          for (Circle circle : newCircles) {
+            final String circleId = String.valueOf(circle.getId());
+            circles.put(circle.getId(), new CircleController(circle, true, this));
+            newCircleIds.add(circleId);
+          }
+        }
+        result.success(newCircleIds);
+        break;
+      }
       case "circle#remove": {
-        final String circleId = call.argument("circle");
-        removeCircle(circleId);
+        removeCircle(Convert.toAnnotationId(call.argument("circle")));
         result.success(null);
         break;
       }
       case "circle#update": {
         Log.e(TAG, "update circle");
-        final String circleId = call.argument("circle");
-        final CircleController circle = circle(circleId);
+        final CircleController circle = circle(Convert.toAnnotationId(call.argument("circle")));
         Convert.interpretCircleOptions(call.argument("options"), circle);
         circle.update(circleManager);
+        annotationIndex.put(circle.getCircle());
+        result.success(null);
+        break;
+      }
+      case "circles#updateAll": {
+        final List<String> circleIds = call.argument("circles");
+        final List<Object> options = call.argument("options");
+        checkUpdateAllArguments(circleIds, options);
+        if (circleIds.isEmpty()) {
+          // the circle manager is only created with the first circle
+          result.success(null);
+          break;
+        }
+        // resolve and parse everything first, so a bad entry leaves every circle untouched
+        final List<CircleController> circleControllers = new ArrayList<>(circleIds.size());
+        for (int i = 0; i < circleIds.size(); i++) {
+          circleControllers.add(circle(Convert.toAnnotationId(circleIds.get(i))));
+          Convert.interpretCircleOptions(options.get(i), new CircleBuilder(circleManager));
+        }
+        final List<Circle> changedCircles = new ArrayList<>(circleIds.size());
+        for (int i = 0; i < circleIds.size(); i++) {
+          final CircleController circle = circleControllers.get(i);
+          Convert.interpretCircleOptions(options.get(i), circle);
+          changedCircles.add(circle.getCircle());
+        }
+        circleManager.update(changedCircles);
+        annotationIndex.putAll(changedCircles);
         result.success(null);
         break;
       }
@@ -504,22 +1365,83 @@ final class MapboxMapController
     final Map<String, Object> arguments = new HashMap<>(2);
     boolean isGesture = reason == MapboxMap.OnCameraMoveStartedListener.REASON_API_GESTURE;
     arguments.put("isGesture", isGesture);
-    methodChannel.invokeMethod("camera#onMoveStarted", arguments);
+    sendEvent("camera#onMoveStarted", arguments);
   }
 
   @Override
   public void onCameraMove() {
+    virtualSymbols.onCameraMove();
     if (!trackCameraPosition) {
       return;
     }
-    final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("position", Convert.toJson(mapboxMap.getCameraPosition()));
-    methodChannel.invokeMethod("camera#onMove", arguments);
+    if (cameraMoveEventRate == 0) {
+      sendCameraMove();
+      return;
+    }
+    if (cameraMovePending) {
+      // a deferred event is already scheduled and will carry the latest position
+      return;
+    }
+    cameraMovePending = true;
+    if (cameraMoveEventRate > 0) {
+      final long interval = 1000 / cameraMoveEventRate;
+      final long elapsed = SystemClock.uptimeMillis() - lastCameraMoveEventTime;
+      if (elapsed >= interval) {
+        sendPendingCameraMove.run();
+      } else {
+        mapView.postDelayed(sendPendingCameraMove, interval - elapsed);
+      }
+    }
+  }
+
+  /**
+   * Sends map#onRenderStats events at the given interval, at least
+   * {@link #MIN_RENDER_STATS_INTERVAL_MILLIS} apart, or stops them with 0.
+   */
+  private void setRenderStatsInterval(long intervalMillis) {
+    mapView.removeCallbacks(sendRenderStats);
+    renderStatsIntervalMillis = intervalMillis <= 0 ? 0 : Math.max(intervalMillis, MIN_RENDER_STATS_INTERVAL_MILLIS);
+    if (renderStatsIntervalMillis > 0) {
+      mapView.postDelayed(sendRenderStats, renderStatsIntervalMillis);
+    }
+  }
+
+  private final Runnable sendRenderStats = new Runnable() {
+    @Override
+    public void run() {
+      if (renderStatsIntervalMillis > 0 && !disposed) {
+        sendEvent("map#onRenderStats", renderStats.toMap());
+        mapView.postDelayed(this, renderStatsIntervalMillis);
+      }
+    }
+  };
+
+  private final Runnable sendPendingCameraMove = new Runnable() {
+    @Override
+    public void run() {
+      if (cameraMovePending && trackCameraPosition && !disposed) {
+        sendCameraMove();
+      }
+    }
+  };
+
+  private void sendCameraMove() {
+    cameraMovePending = false;
+    lastCameraMoveEventTime = SystemClock.uptimeMillis();
+    sendEvent("camera#onMove",
+      Convert.toPacked(mapboxMap.getCameraPosition(), packedCameraPosition));
   }
 
   @Override
   public void onCameraIdle() {
-    methodChannel.invokeMethod("camera#onIdle", Collections.singletonMap("map", id));
+    if (cameraMovePending) {
+      mapView.removeCallbacks(sendPendingCameraMove);
+      sendCameraMove();
+    }
+    clustersController.onCameraIdle();
+    virtualSymbols.onCameraIdle();
+    lineSimplifier.onCameraIdle(mapboxMap.getCameraPosition().zoom, lines);
+    sendEvent("camera#onIdle", Collections.singletonMap("map", id));
   }
 
   @Override
@@ -528,27 +1450,34 @@ final class MapboxMapController
 
   @Override
   public void onCameraTrackingDismissed() {
-    methodChannel.invokeMethod("map#onCameraTrackingDismissed", new HashMap<>());
+    sendEvent("map#onCameraTrackingDismissed", new HashMap<>());
   }
 
   @Override
   public void onAnnotationClick(Annotation annotation) {
     if (annotation instanceof Symbol) {
-      final SymbolController symbolController = symbols.get(String.valueOf(annotation.getId()));
+      final SymbolController symbolController = symbols.get(annotation.getId());
       if (symbolController != null) {
         symbolController.onTap();
+      } else {
+        final long virtualSymbolId = virtualSymbols.virtualIdOf(annotation.getId());
+        if (virtualSymbolId != 0) {
+          final Map<String, Object> arguments = new HashMap<>(2);
+          arguments.put("symbol", String.valueOf(virtualSymbolId));
+          sendEvent("symbol#onTap", arguments);
+        }
       }
     }
 
     if (annotation instanceof Line) {
-      final LineController lineController = lines.get(String.valueOf(annotation.getId()));
+      final LineController lineController = lines.get(annotation.getId());
       if (lineController != null) {
         lineController.onTap();
       }
     }
     
     if (annotation instanceof Circle) {
-      final CircleController circleController = circles.get(String.valueOf(annotation.getId()));
+      final CircleController circleController = circles.get(annotation.getId());
       if (circleController != null) {
         circleController.onTap();
       }
@@ -559,21 +1488,21 @@ final class MapboxMapController
   public void onSymbolTapped(Symbol symbol) {
     final Map<String, Object> arguments = new HashMap<>(2);
     arguments.put("symbol", String.valueOf(symbol.getId()));
-    methodChannel.invokeMethod("symbol#onTap", arguments);
+    sendEvent("symbol#onTap", arguments);
   }
 
   @Override
   public void onLineTapped(Line line) {
     final Map<String, Object> arguments = new HashMap<>(2);
     arguments.put("line", String.valueOf(line.getId()));
-    methodChannel.invokeMethod("line#onTap", arguments);
+    sendEvent("line#onTap", arguments);
   }
 
   @Override
   public void onCircleTapped(Circle circle) {
     final Map<String, Object> arguments = new HashMap<>(2);
     arguments.put("circle", String.valueOf(circle.getId()));
-    methodChannel.invokeMethod("circle#onTap", arguments);
+    sendEvent("circle#onTap", arguments);
   }
 
   @Override
@@ -584,7 +1513,7 @@ final class MapboxMapController
     arguments.put("y", pointf.y);
     arguments.put("lng", point.getLongitude());
     arguments.put("lat", point.getLatitude());
-    methodChannel.invokeMethod("map#onMapClick", arguments);
+    sendEvent("map#onMapClick", arguments);
     return true;
   }
 
@@ -594,7 +1523,16 @@ final class MapboxMapController
       return;
     }
     disposed = true;
+    mapView.removeCallbacks(sendPendingCameraMove);
+    mapView.removeCallbacks(sendRenderStats);
+    renderStats.dispose();
+    sourcesController.dispose();
+    clustersController.dispose();
+    virtualSymbols.dispose();
+    lineSimplifier.dispose();
     if (locationComponent != null) {
+      // the component belongs to the map, which outlives this controller in the pool
+      locationComponent.removeOnCameraTrackingChangedListener(this);
       locationComponent.setLocationComponentEnabled(false);
     }
     if (symbolManager != null) {
@@ -607,8 +1545,43 @@ final class MapboxMapController
       circleManager.onDestroy();
     }
 
-    mapView.onDestroy();
     registrar.activity().getApplication().unregisterActivityLifecycleCallbacks(this);
+    if (!releaseMapView()) {
+      mapView.onDestroy();
+    }
+  }
+
+  /**
+   * Returns the view to the pool, stopped and cleared of what this controller added
+   * to the map. Returns false when the pool does not take it.
+   */
+  private boolean releaseMapView() {
+    if (mapboxMap == null || activityState.get() == DESTROYED) {
+      return false;
+    }
+    switch (activityState.get()) {
+      case RESUMED:
+        mapView.onPause();
+        mapView.onStop();
+        break;
+      case STARTED:
+      case PAUSED:
+        mapView.onStop();
+        break;
+      default:
+        break;
+    }
+    if (!mapViewPool.release(mapView, styleString)) {
+      return false;
+    }
+    mapboxMap.removeOnCameraIdleListener(this);
+    mapboxMap.removeOnCameraMoveStartedListener(this);
+    mapboxMap.removeOnCameraMoveListener(this);
+    mapboxMap.removeOnMapClickListener(this);
+    mapboxMap.setOnMarkerClickListener(null);
+    mapboxMap.setLatLngBoundsForCameraTarget(null);
+    mapboxMap.clear();
+    return true;
   }
 
   @Override
@@ -684,6 +1657,11 @@ final class MapboxMapController
     this.trackCameraPosition = trackCameraPosition;
   }
 
+  @Override
+  public void setCameraMoveEventRate(int cameraMoveEventRate) {
+    this.cameraMoveEventRate = cameraMoveEventRate;
+  }
+
   @Override
   public void setRotateGesturesEnabled(boolean rotateGesturesEnabled) {
     mapboxMap.getUiSettings().setRotateGesturesEnabled(rotateGesturesEnabled);
@@ -737,9 +1715,21 @@ final class MapboxMapController
     }
   }
 
+  /**
+   * Activates the location component when the location is first enabled after the
+   * style has loaded; until then the style load activates it. Once activated, the
+   * component is only shown or hidden.
+   */
+  @SuppressWarnings( {"MissingPermission"})
   private void updateMyLocationEnabled() {
-    //TODO: call location initialization if changed to true and not initialized yet.;
-    //Show/Hide use location as needed
+    if (locationComponent != null) {
+      locationComponent.setLocationComponentEnabled(myLocationEnabled);
+      return;
+    }
+    final Style style = mapboxMap.getStyle();
+    if (myLocationEnabled && style != null && style.isFullyLoaded()) {
+      enableLocationComponent(style);
+    }
   }
 
   private void updateMyLocationTrackingMode() {
@@ -769,6 +1759,31 @@ final class MapboxMapController
     return markersController.onMarkerTap(m);
   }
 
+  /** Pre-declares the annotation types whose managers are created when a style loads. */
+  void setAnnotationTypes(List<?> annotationTypes) {
+    annotationTypeMask = annotationTypes == null ? 0 : AnnotationIndex.toTypeMask(annotationTypes);
+    final Style style = mapboxMap == null ? null : mapboxMap.getStyle();
+    if (style != null && style.isFullyLoaded()) {
+      createDeclaredAnnotationManagers();
+    }
+  }
+
+  /**
+   * Creates the managers of the pre-declared annotation types; the others are created
+   * by the first addition of their type.
+   */
+  private void createDeclaredAnnotationManagers() {
+    if ((annotationTypeMask & (1 << AnnotationIndex.LINE)) != 0) {
+      lineManager();
+    }
+    if ((annotationTypeMask & (1 << AnnotationIndex.SYMBOL)) != 0) {
+      symbolManager();
+    }
+    if ((annotationTypeMask & (1 << AnnotationIndex.CIRCLE)) != 0) {
+      circleManager();
+    }
+  }
+
   @Override
   public void setInitialMarkers(Object initialMarkers) {
     this.initialMarkers = (List<Object>) initialMarkers;
@@ -4,6 +4,7 @@ import android.content.Context;
 
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -17,11 +18,13 @@ public class MapboxMapFactory extends PlatformViewFactory {
 
     private final AtomicInteger mActivityState;
     private final Registrar mPluginRegistrar;
+    private final MapViewPool mMapViewPool;
 
-    public MapboxMapFactory(AtomicInteger state, Registrar registrar) {
+    public MapboxMapFactory(AtomicInteger state, Registrar registrar, MapViewPool mapViewPool) {
         super(StandardMessageCodec.INSTANCE);
         mActivityState = state;
         mPluginRegistrar = registrar;
+        mMapViewPool = mapViewPool;
     }
 
     @Override
@@ -37,6 +40,9 @@ public class MapboxMapFactory extends PlatformViewFactory {
         if (params.containsKey("markersToAdd")) {
             builder.setInitialMarkers(params.get("markersToAdd"));
         }
-        return builder.build(id, context, mActivityState, mPluginRegistrar);
+        if (params.containsKey("annotationTypes")) {
+            builder.setAnnotationTypes((List<?>) params.get("annotationTypes"));
+        }
+        return builder.build(id, context, mActivityState, mPluginRegistrar, mMapViewPool);
     }
 }
@@ -27,6 +27,8 @@ interface MapboxMapOptionsSink {
 
   void setTrackCameraPosition(boolean trackCameraPosition);
 
+  void setCameraMoveEventRate(int cameraMoveEventRate);
+
   void setZoomGesturesEnabled(boolean zoomGesturesEnabled);
 
   void setMyLocationEnabled(boolean myLocationEnabled);
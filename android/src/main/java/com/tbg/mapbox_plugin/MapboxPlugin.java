@@ -22,6 +22,7 @@ public class MapboxPlugin implements Application.ActivityLifecycleCallbacks {
   static final int DESTROYED = 6;
   private final AtomicInteger state = new AtomicInteger(0);
   private final int registrarActivityHashCode;
+  private final MapViewPool mapViewPool;
 
   public static void registerWith(Registrar registrar) {
     final MapboxPlugin plugin = new MapboxPlugin(registrar);
@@ -29,11 +30,13 @@ public class MapboxPlugin implements Application.ActivityLifecycleCallbacks {
     registrar
             .platformViewRegistry()
             .registerViewFactory(
-                    "plugins.flutter.io/mapbox_plugin", new MapboxMapFactory(plugin.state, registrar));
+                    "plugins.flutter.io/mapbox_plugin",
+                    new MapboxMapFactory(plugin.state, registrar, plugin.mapViewPool));
 
     MethodChannel methodChannel =
             new MethodChannel(registrar.messenger(), "plugins.flutter.io/mapbox_plugin");
-    methodChannel.setMethodCallHandler(new GlobalMethodHandler(registrar));
+    methodChannel.setMethodCallHandler(
+            new GlobalMethodHandler(registrar, methodChannel, plugin.mapViewPool));
   }
 
   @Override
@@ -86,9 +89,11 @@ public class MapboxPlugin implements Application.ActivityLifecycleCallbacks {
       return;
     }
     state.set(DESTROYED);
+    mapViewPool.clear();
   }
 
   private MapboxPlugin(Registrar registrar) {
     this.registrarActivityHashCode = registrar.activity().hashCode();
+    this.mapViewPool = new MapViewPool(registrar.activity());
   }
 }
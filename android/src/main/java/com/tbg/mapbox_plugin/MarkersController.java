@@ -16,12 +16,14 @@ class MarkersController {
     private final Map<String, MarkerController> markerIdToController;
     private final Map<String, String> mapboxMapsMarkerIdToDartMarkerId;
     private final MethodChannel methodChannel;
+    private final ChannelMetrics metrics;
     private MapboxMap mapboxMap;
 
-    MarkersController(MethodChannel methodChannel) {
+    MarkersController(MethodChannel methodChannel, ChannelMetrics metrics) {
         this.markerIdToController = new HashMap<>();
         this.mapboxMapsMarkerIdToDartMarkerId = new HashMap<>();
         this.methodChannel = methodChannel;
+        this.metrics = metrics;
     }
 
     @SuppressWarnings("unchecked")
@@ -72,6 +74,7 @@ class MarkersController {
         if (markerId == null) {
             return false;
         }
+        metrics.recordEvent("marker#onTap");
         methodChannel.invokeMethod("marker#onTap", Convert.markerIdToJson(markerId));
         MarkerController markerController = markerIdToController.get(markerId);
         if (markerController != null) {
@@ -88,6 +91,7 @@ class MarkersController {
         final Map<String, Object> data = new HashMap<>();
         data.put("markerId", markerId);
         data.put("position", Convert.latLngToJson(latLng));
+        metrics.recordEvent("marker#onDragEnd");
         methodChannel.invokeMethod("marker#onDragEnd", data);
     }
 
@@ -96,6 +100,7 @@ class MarkersController {
         if (markerId == null) {
             return;
         }
+        metrics.recordEvent("infoWindow#onTap");
         methodChannel.invokeMethod("infoWindow#onTap", Convert.markerIdToJson(markerId));
     }
 
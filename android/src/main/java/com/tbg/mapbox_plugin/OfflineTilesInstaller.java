@@ -0,0 +1,245 @@
+package com.tbg.mapbox_plugin;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * Copies a bundled tiles database asset to the offline database of the SDK, or
+ * extracts it to be merged into that database.
+ *
+ * Must not run on the platform thread. Assets stored uncompressed in the APK are
+ * copied with {@link FileChannel#transferTo}, which lets the kernel move the bytes;
+ * compressed assets are streamed through a large buffer.
+ *
+ * The copy goes to a temporary file renamed over the database once complete, so an
+ * interrupted install never leaves a partial database. A manifest next to the database
+ * identifies the installed asset by key, size and version, where the version is the
+ * one supplied by the app or else the last update time of the app, since bundled
+ * assets only change with it. The installed file itself is not compared, as the SDK
+ * keeps its ambient cache in it.
+ */
+class OfflineTilesInstaller {
+  static final String DATABASE_NAME = "mbgl-offline.db";
+  private static final String MANIFEST_NAME = DATABASE_NAME + ".manifest";
+  private static final String TEMP_NAME = DATABASE_NAME + ".tmp";
+  private static final int BUFFER_SIZE = 256 * 1024;
+  // progress is reported after each chunk
+  private static final long CHUNK_SIZE = 4 * 1024 * 1024;
+
+  interface ProgressListener {
+    /** {@code totalBytes} is -1 when the size of the asset is not known up front. */
+    void onProgress(long bytesCopied, long totalBytes);
+  }
+
+  private OfflineTilesInstaller() {
+  }
+
+  /**
+   * Installs the asset as the offline database unless the manifest shows it is already
+   * installed, or {@code force} is set. Returns whether the database was copied.
+   */
+  static boolean install(Context context, String assetKey, String version, boolean force,
+                         ProgressListener listener) throws IOException {
+    final File dest = new File(context.getFilesDir(), DATABASE_NAME);
+    final File manifestFile = new File(context.getFilesDir(), MANIFEST_NAME);
+    final File temp = new File(context.getFilesDir(), TEMP_NAME);
+    AssetFileDescriptor fd = null;
+    try {
+      fd = context.getAssets().openFd(assetKey);
+    } catch (FileNotFoundException e) {
+      // the asset is compressed and can only be streamed
+    }
+    try {
+      final Properties manifest = describe(context, assetKey, version, fd);
+      if (!force && dest.exists() && matches(manifestFile, manifest)) {
+        return false;
+      }
+
+      final long size;
+      if (fd != null) {
+        size = copy(fd, temp, listener);
+      } else {
+        try (InputStream in = context.getAssets().open(assetKey, AssetManager.ACCESS_STREAMING)) {
+          size = copy(in, temp, listener);
+        }
+        manifest.setProperty("size", String.valueOf(size));
+      }
+      // drop the manifest first, so a crash before it is rewritten forces a reinstall
+      manifestFile.delete();
+      if (!temp.renameTo(dest)) {
+        throw new IOException("Unable to move the installed database to " + dest);
+      }
+      writeManifest(manifestFile, manifest);
+      return true;
+    } finally {
+      temp.delete();
+      if (fd != null) {
+        fd.close();
+      }
+    }
+  }
+
+  /**
+   * Copies the asset to a temporary file to be merged into the offline database,
+   * unless the manifest shows the same asset was already merged, or {@code force} is
+   * set. Returns null when the asset does not need merging; otherwise the caller owns
+   * the file and calls {@link #recordMerge} once merged.
+   */
+  static MergeSource extractForMerge(Context context, String assetKey, String version, boolean force,
+                                     ProgressListener listener) throws IOException {
+    AssetFileDescriptor fd = null;
+    try {
+      fd = context.getAssets().openFd(assetKey);
+    } catch (FileNotFoundException e) {
+      // the asset is compressed and can only be streamed
+    }
+    try {
+      final Properties manifest = describe(context, assetKey, version, fd);
+      if (!force && matches(mergeManifestFile(context, assetKey), manifest)) {
+        return null;
+      }
+      final File file = File.createTempFile("offline-merge", ".db", context.getCacheDir());
+      try {
+        if (fd != null) {
+          copy(fd, file, listener);
+        } else {
+          try (InputStream in = context.getAssets().open(assetKey, AssetManager.ACCESS_STREAMING)) {
+            manifest.setProperty("size", String.valueOf(copy(in, file, listener)));
+          }
+        }
+      } catch (IOException e) {
+        file.delete();
+        throw e;
+      }
+      return new MergeSource(file, assetKey, manifest);
+    } finally {
+      if (fd != null) {
+        fd.close();
+      }
+    }
+  }
+
+  /** Records a merged asset in its manifest and deletes its temporary file. */
+  static void recordMerge(Context context, MergeSource source) throws IOException {
+    source.file.delete();
+    writeManifest(mergeManifestFile(context, source.assetKey), source.manifest);
+  }
+
+  /** A bundled database extracted to a file for merging. */
+  static final class MergeSource {
+    final File file;
+    private final String assetKey;
+    private final Properties manifest;
+
+    private MergeSource(File file, String assetKey, Properties manifest) {
+      this.file = file;
+      this.assetKey = assetKey;
+      this.manifest = manifest;
+    }
+  }
+
+  private static File mergeManifestFile(Context context, String assetKey) {
+    return new File(context.getFilesDir(),
+      "mbgl-merged-" + Integer.toHexString(assetKey.hashCode()) + ".manifest");
+  }
+
+  private static Properties describe(Context context, String assetKey, String version, AssetFileDescriptor fd) {
+    final Properties manifest = new Properties();
+    manifest.setProperty("asset", assetKey);
+    manifest.setProperty("version", version != null ? version : "app:" + appUpdateTime(context));
+    if (fd != null) {
+      manifest.setProperty("size", String.valueOf(fd.getLength()));
+    }
+    return manifest;
+  }
+
+  private static boolean matches(File manifestFile, Properties expected) {
+    if (!manifestFile.exists()) {
+      return false;
+    }
+    final Properties installed = new Properties();
+    try (InputStream in = new FileInputStream(manifestFile)) {
+      installed.load(in);
+    } catch (IOException e) {
+      return false;
+    }
+    for (String key : expected.stringPropertyNames()) {
+      if (!expected.getProperty(key).equals(installed.getProperty(key))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeManifest(File manifestFile, Properties manifest) throws IOException {
+    final File temp = new File(manifestFile.getPath() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp)) {
+      manifest.store(out, null);
+      out.getFD().sync();
+    }
+    if (!temp.renameTo(manifestFile)) {
+      temp.delete();
+      throw new IOException("Unable to write " + manifestFile);
+    }
+  }
+
+  private static long appUpdateTime(Context context) {
+    try {
+      return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+    } catch (PackageManager.NameNotFoundException e) {
+      return 0;
+    }
+  }
+
+  private static long copy(AssetFileDescriptor fd, File dest, ProgressListener listener) throws IOException {
+    final long start = fd.getStartOffset();
+    final long length = fd.getLength();
+    try (FileInputStream in = fd.createInputStream();
+         FileOutputStream out = new FileOutputStream(dest)) {
+      final FileChannel source = in.getChannel();
+      final FileChannel target = out.getChannel();
+      long copied = 0;
+      while (copied < length) {
+        final long transferred = source.transferTo(start + copied, Math.min(CHUNK_SIZE, length - copied), target);
+        if (transferred <= 0) {
+          throw new IOException("Unexpected end of asset after " + copied + " of " + length + " bytes");
+        }
+        copied += transferred;
+        listener.onProgress(copied, length);
+      }
+      target.force(false);
+      return copied;
+    }
+  }
+
+  private static long copy(InputStream in, File dest, ProgressListener listener) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    try (FileOutputStream out = new FileOutputStream(dest)) {
+      long copied = 0;
+      long reported = 0;
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+        copied += n;
+        if (copied - reported >= CHUNK_SIZE) {
+          reported = copied;
+          listener.onProgress(copied, -1);
+        }
+      }
+      out.getFD().sync();
+      listener.onProgress(copied, copied);
+      return copied;
+    }
+  }
+}
@@ -0,0 +1,442 @@
+package com.tbg.mapbox_plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Dynamic 2D R-tree in the manner of rbush.
+ *
+ * Entries are inserted one at a time with R*-style split heuristics, or in bulk with
+ * Sort-Tile-Recursive packing, and removed by identity. Supports box searches and
+ * k-nearest-neighbour queries.
+ */
+class RTree {
+  private static final int MAX_ENTRIES = 16;
+  private static final int MIN_ENTRIES = 6;
+
+  /** An axis-aligned bounding box, extended by the indexed items. */
+  static class Entry {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Squared distance from the point to the item, by default to its box. Items with a
+     * finer geometry override this for exact nearest-neighbour ordering.
+     */
+    double distanceSq(double x, double y) {
+      return boxDistanceSq(this, x, y);
+    }
+  }
+
+  /** Accepts or rejects items of a nearest-neighbour query. */
+  interface Filter {
+    boolean accept(Entry item);
+  }
+
+  private static final class Node extends Entry {
+    final List<Entry> children;
+    int height = 1;
+    boolean leaf = true;
+
+    Node(List<Entry> children) {
+      this.children = children;
+    }
+  }
+
+  private static final class Candidate {
+    final Entry entry;
+    final double distanceSq;
+    final boolean exact;
+
+    Candidate(Entry entry, double distanceSq, boolean exact) {
+      this.entry = entry;
+      this.distanceSq = distanceSq;
+      this.exact = exact;
+    }
+  }
+
+  private static final Comparator<Entry> COMPARE_MIN_X = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      return Double.compare(a.minX, b.minX);
+    }
+  };
+
+  private static final Comparator<Entry> COMPARE_MIN_Y = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      return Double.compare(a.minY, b.minY);
+    }
+  };
+
+  private Node root = new Node(new ArrayList<Entry>());
+
+  void clear() {
+    root = new Node(new ArrayList<Entry>());
+  }
+
+  void insert(Entry item) {
+    insert(item, root.height - 1);
+  }
+
+  /**
+   * Inserts many items at once. Into an empty tree this packs them with STR, which
+   * builds a better tree in a fraction of the time of one-by-one insertion.
+   */
+  void load(List<? extends Entry> items) {
+    if (items.size() < MIN_ENTRIES) {
+      for (Entry item : items) {
+        insert(item);
+      }
+      return;
+    }
+    Node node = build(new ArrayList<Entry>(items), 0, items.size() - 1, 0);
+    if (root.children.isEmpty()) {
+      root = node;
+    } else if (root.height == node.height) {
+      splitRoot(root, node);
+    } else {
+      if (root.height < node.height) {
+        final Node tmp = root;
+        root = node;
+        node = tmp;
+      }
+      insert(node, root.height - node.height - 1);
+    }
+  }
+
+  /** Removes the given item, compared by identity, and returns whether it was found. */
+  boolean remove(Entry item) {
+    final List<Node> path = new ArrayList<>();
+    if (!remove(root, item, path)) {
+      return false;
+    }
+    for (int i = path.size() - 1; i >= 0; i--) {
+      final Node node = path.get(i);
+      if (node.children.isEmpty()) {
+        if (i > 0) {
+          path.get(i - 1).children.remove(node);
+        } else {
+          clear();
+        }
+      } else {
+        calcBBox(node);
+      }
+    }
+    return true;
+  }
+
+  /** Appends the items intersecting the given box to {@code result}. */
+  void search(double minX, double minY, double maxX, double maxY, List<Entry> result) {
+    if (!intersects(root, minX, minY, maxX, maxY)) {
+      return;
+    }
+    final List<Node> stack = new ArrayList<>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      final Node node = stack.remove(stack.size() - 1);
+      for (Entry child : node.children) {
+        if (!intersects(child, minX, minY, maxX, maxY)) {
+          continue;
+        }
+        if (node.leaf) {
+          result.add(child);
+        } else if (contains(minX, minY, maxX, maxY, child)) {
+          collectItems((Node) child, result);
+        } else {
+          stack.add((Node) child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns up to {@code count} items accepted by {@code filter}, which may be null,
+   * ordered by distance to the point and no further than {@code maxDistance}.
+   */
+  List<Entry> nearest(double x, double y, int count, double maxDistance, Filter filter) {
+    final List<Entry> result = new ArrayList<>();
+    final double maxDistanceSq = maxDistance * maxDistance;
+    final PriorityQueue<Candidate> queue = new PriorityQueue<>(64, new Comparator<Candidate>() {
+      @Override
+      public int compare(Candidate a, Candidate b) {
+        return Double.compare(a.distanceSq, b.distanceSq);
+      }
+    });
+    Node node = root;
+    while (node != null) {
+      for (Entry child : node.children) {
+        final double distanceSq = boxDistanceSq(child, x, y);
+        if (distanceSq <= maxDistanceSq && (!node.leaf || filter == null || filter.accept(child))) {
+          queue.add(new Candidate(child, distanceSq, false));
+        }
+      }
+      node = null;
+      while (!queue.isEmpty() && node == null) {
+        final Candidate candidate = queue.poll();
+        if (candidate.entry instanceof Node) {
+          node = (Node) candidate.entry;
+        } else if (candidate.exact) {
+          result.add(candidate.entry);
+          if (result.size() == count) {
+            return result;
+          }
+        } else {
+          // the box distance is a lower bound, requeue the item at its exact distance
+          final double distanceSq = candidate.entry.distanceSq(x, y);
+          if (distanceSq <= maxDistanceSq) {
+            queue.add(new Candidate(candidate.entry, distanceSq, true));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private void insert(Entry item, int level) {
+    final List<Node> path = new ArrayList<>();
+    final Node node = chooseSubtree(item, root, level, path);
+    node.children.add(item);
+    extend(node, item);
+    while (level >= 0 && path.get(level).children.size() > MAX_ENTRIES) {
+      split(path, level);
+      level--;
+    }
+    for (int i = level; i >= 0; i--) {
+      extend(path.get(i), item);
+    }
+  }
+
+  private static Node chooseSubtree(Entry bbox, Node node, int level, List<Node> path) {
+    while (true) {
+      path.add(node);
+      if (node.leaf || path.size() - 1 == level) {
+        return node;
+      }
+      double minArea = Double.POSITIVE_INFINITY;
+      double minEnlargement = Double.POSITIVE_INFINITY;
+      Node target = null;
+      for (Entry child : node.children) {
+        final double area = area(child);
+        final double enlargement = enlargedArea(bbox, child) - area;
+        if (enlargement < minEnlargement) {
+          minEnlargement = enlargement;
+          minArea = Math.min(area, minArea);
+          target = (Node) child;
+        } else if (enlargement == minEnlargement && area < minArea) {
+          minArea = area;
+          target = (Node) child;
+        }
+      }
+      node = target != null ? target : (Node) node.children.get(0);
+    }
+  }
+
+  private void split(List<Node> path, int level) {
+    final Node node = path.get(level);
+    final int count = node.children.size();
+    chooseSplitAxis(node, count);
+    final int splitIndex = chooseSplitIndex(node, count);
+
+    final List<Entry> tail = node.children.subList(splitIndex, count);
+    final Node newNode = new Node(new ArrayList<>(tail));
+    tail.clear();
+    newNode.height = node.height;
+    newNode.leaf = node.leaf;
+    calcBBox(node);
+    calcBBox(newNode);
+
+    if (level > 0) {
+      path.get(level - 1).children.add(newNode);
+    } else {
+      splitRoot(node, newNode);
+    }
+  }
+
+  private void splitRoot(Node node, Node newNode) {
+    final List<Entry> children = new ArrayList<>();
+    children.add(node);
+    children.add(newNode);
+    root = new Node(children);
+    root.height = node.height + 1;
+    root.leaf = false;
+    calcBBox(root);
+  }
+
+  private static int chooseSplitIndex(Node node, int count) {
+    int index = -1;
+    double minOverlap = Double.POSITIVE_INFINITY;
+    double minArea = Double.POSITIVE_INFINITY;
+    for (int i = MIN_ENTRIES; i <= count - MIN_ENTRIES; i++) {
+      final Entry bbox1 = distBBox(node, 0, i);
+      final Entry bbox2 = distBBox(node, i, count);
+      final double overlap = intersectionArea(bbox1, bbox2);
+      final double area = area(bbox1) + area(bbox2);
+      if (overlap < minOverlap) {
+        minOverlap = overlap;
+        index = i;
+        minArea = Math.min(area, minArea);
+      } else if (overlap == minOverlap && area < minArea) {
+        minArea = area;
+        index = i;
+      }
+    }
+    return index == -1 ? count - MIN_ENTRIES : index;
+  }
+
+  /** Sorts the children along the axis with the smallest total split margin. */
+  private static void chooseSplitAxis(Node node, int count) {
+    final double xMargin = allDistMargin(node, count, COMPARE_MIN_X);
+    final double yMargin = allDistMargin(node, count, COMPARE_MIN_Y);
+    if (xMargin < yMargin) {
+      Collections.sort(node.children, COMPARE_MIN_X);
+    }
+  }
+
+  private static double allDistMargin(Node node, int count, Comparator<Entry> comparator) {
+    Collections.sort(node.children, comparator);
+    final Entry leftBBox = distBBox(node, 0, MIN_ENTRIES);
+    final Entry rightBBox = distBBox(node, count - MIN_ENTRIES, count);
+    double margin = margin(leftBBox) + margin(rightBBox);
+    for (int i = MIN_ENTRIES; i < count - MIN_ENTRIES; i++) {
+      extend(leftBBox, node.children.get(i));
+      margin += margin(leftBBox);
+    }
+    for (int i = count - MIN_ENTRIES - 1; i >= MIN_ENTRIES; i--) {
+      extend(rightBBox, node.children.get(i));
+      margin += margin(rightBBox);
+    }
+    return margin;
+  }
+
+  private static Node build(List<Entry> items, int left, int right, int height) {
+    final int count = right - left + 1;
+    int maxEntries = MAX_ENTRIES;
+    if (count <= maxEntries) {
+      final Node node = new Node(new ArrayList<>(items.subList(left, right + 1)));
+      calcBBox(node);
+      return node;
+    }
+    if (height == 0) {
+      // target height of the packed tree, and root fan-out to keep it balanced
+      height = (int) Math.ceil(Math.log(count) / Math.log(maxEntries));
+      maxEntries = (int) Math.ceil(count / Math.pow(maxEntries, height - 1));
+    }
+
+    final Node node = new Node(new ArrayList<Entry>());
+    node.leaf = false;
+    node.height = height;
+
+    final int nodeSize = (int) Math.ceil((double) count / maxEntries);
+    final int sliceSize = nodeSize * (int) Math.ceil(Math.sqrt(maxEntries));
+
+    Collections.sort(items.subList(left, right + 1), COMPARE_MIN_X);
+    for (int i = left; i <= right; i += sliceSize) {
+      final int sliceRight = Math.min(i + sliceSize - 1, right);
+      Collections.sort(items.subList(i, sliceRight + 1), COMPARE_MIN_Y);
+      for (int j = i; j <= sliceRight; j += nodeSize) {
+        node.children.add(build(items, j, Math.min(j + nodeSize - 1, sliceRight), height - 1));
+      }
+    }
+    calcBBox(node);
+    return node;
+  }
+
+  private static boolean remove(Node node, Entry item, List<Node> path) {
+    path.add(node);
+    if (node.leaf) {
+      for (int i = 0; i < node.children.size(); i++) {
+        if (node.children.get(i) == item) {
+          node.children.remove(i);
+          return true;
+        }
+      }
+    } else {
+      for (Entry child : node.children) {
+        if (contains(child.minX, child.minY, child.maxX, child.maxY, item)
+          && remove((Node) child, item, path)) {
+          return true;
+        }
+      }
+    }
+    path.remove(path.size() - 1);
+    return false;
+  }
+
+  private static void collectItems(Node node, List<Entry> result) {
+    if (node.leaf) {
+      result.addAll(node.children);
+      return;
+    }
+    for (Entry child : node.children) {
+      collectItems((Node) child, result);
+    }
+  }
+
+  private static void calcBBox(Node node) {
+    final Entry bbox = distBBox(node, 0, node.children.size());
+    node.minX = bbox.minX;
+    node.minY = bbox.minY;
+    node.maxX = bbox.maxX;
+    node.maxY = bbox.maxY;
+  }
+
+  private static Entry distBBox(Node node, int from, int to) {
+    final Entry bbox = new Entry();
+    for (int i = from; i < to; i++) {
+      extend(bbox, node.children.get(i));
+    }
+    return bbox;
+  }
+
+  private static void extend(Entry a, Entry b) {
+    a.minX = Math.min(a.minX, b.minX);
+    a.minY = Math.min(a.minY, b.minY);
+    a.maxX = Math.max(a.maxX, b.maxX);
+    a.maxY = Math.max(a.maxY, b.maxY);
+  }
+
+  private static double area(Entry a) {
+    return (a.maxX - a.minX) * (a.maxY - a.minY);
+  }
+
+  private static double margin(Entry a) {
+    return (a.maxX - a.minX) + (a.maxY - a.minY);
+  }
+
+  private static double enlargedArea(Entry a, Entry b) {
+    return (Math.max(b.maxX, a.maxX) - Math.min(b.minX, a.minX))
+      * (Math.max(b.maxY, a.maxY) - Math.min(b.minY, a.minY));
+  }
+
+  private static double intersectionArea(Entry a, Entry b) {
+    final double minX = Math.max(a.minX, b.minX);
+    final double minY = Math.max(a.minY, b.minY);
+    final double maxX = Math.min(a.maxX, b.maxX);
+    final double maxY = Math.min(a.maxY, b.maxY);
+    return Math.max(0, maxX - minX) * Math.max(0, maxY - minY);
+  }
+
+  private static boolean contains(double minX, double minY, double maxX, double maxY, Entry b) {
+    return minX <= b.minX && minY <= b.minY && b.maxX <= maxX && b.maxY <= maxY;
+  }
+
+  private static boolean intersects(Entry a, double minX, double minY, double maxX, double maxY) {
+    return a.minX <= maxX && a.minY <= maxY && a.maxX >= minX && a.maxY >= minY;
+  }
+
+  static double boxDistanceSq(Entry box, double x, double y) {
+    final double dx = axisDistance(x, box.minX, box.maxX);
+    final double dy = axisDistance(y, box.minY, box.maxY);
+    return dx * dx + dy * dy;
+  }
+
+  private static double axisDistance(double k, double min, double max) {
+    return k < min ? min - k : k <= max ? 0 : k - max;
+  }
+}
@@ -0,0 +1,173 @@
+package com.tbg.mapbox_plugin;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.WindowManager;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frame statistics of a map view, gathered from its render callbacks.
+ *
+ * The duration of a frame is the time from the will-start to the did-finish
+ * rendering callback, both delivered on the platform thread. A frame taking longer
+ * than the refresh interval of the display is counted as slow; whether the display
+ * actually dropped it is not known here. The durations of the most recent frames are
+ * kept in a ring buffer, from which the histogram and percentiles are computed on
+ * request, so a frame only costs a few field updates.
+ *
+ * Load times are measured from the creation of the stats, which is when the map got
+ * its view: a new view, or one handed out by the pool. A pooled view may have loaded
+ * its style before the handoff, in which case the controller reports the load with
+ * {@link #onMapLoadedBeforeHandoff}.
+ */
+final class RenderStats implements MapView.OnWillStartRenderingFrameListener,
+  MapView.OnDidFinishRenderingFrameListener,
+  MapView.OnDidFinishRenderingMapListener,
+  MapView.OnDidFinishLoadingMapListener {
+  private static final int WINDOW_SIZE = 600;
+  // upper bounds of the histogram buckets in milliseconds, the last bucket is open
+  private static final double[] HISTOGRAM_EDGES = {4, 8, 16, 33, 66};
+
+  private final MapView mapView;
+  private final double frameBudgetMillis;
+  private final boolean pooled;
+  private final long startTime = SystemClock.elapsedRealtime();
+  private final double[] window = new double[WINDOW_SIZE];
+  private int windowCount = 0;
+  private int windowNext = 0;
+  private long frameStartNanos = -1;
+  private long frameCount = 0;
+  private long slowFrameCount = 0;
+  private long partialFrameCount = 0;
+  private Long mapLoadedMillis;
+  private Long firstFullRenderMillis;
+
+  RenderStats(Context context, MapView mapView, boolean pooled) {
+    this.mapView = mapView;
+    this.pooled = pooled;
+    final WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    final float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+    this.frameBudgetMillis = 1000.0 / (refreshRate > 0 ? refreshRate : 60);
+    mapView.addOnWillStartRenderingFrameListener(this);
+    mapView.addOnDidFinishRenderingFrameListener(this);
+    mapView.addOnDidFinishRenderingMapListener(this);
+    mapView.addOnDidFinishLoadingMapListener(this);
+  }
+
+  @Override
+  public void onWillStartRenderingFrame() {
+    frameStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void onDidFinishRenderingFrame(boolean fully) {
+    if (frameStartNanos < 0) {
+      return;
+    }
+    final double durationMillis = (System.nanoTime() - frameStartNanos) / 1e6;
+    frameStartNanos = -1;
+    frameCount++;
+    if (!fully) {
+      // rendered while tiles or the style are still loading
+      partialFrameCount++;
+    }
+    if (durationMillis > frameBudgetMillis) {
+      slowFrameCount++;
+    }
+    window[windowNext] = durationMillis;
+    windowNext = (windowNext + 1) % WINDOW_SIZE;
+    windowCount = Math.min(windowCount + 1, WINDOW_SIZE);
+  }
+
+  @Override
+  public void onDidFinishRenderingMap(boolean fully) {
+    if (fully && firstFullRenderMillis == null) {
+      firstFullRenderMillis = SystemClock.elapsedRealtime() - startTime;
+    }
+  }
+
+  @Override
+  public void onDidFinishLoadingMap() {
+    if (mapLoadedMillis == null) {
+      mapLoadedMillis = SystemClock.elapsedRealtime() - startTime;
+    }
+  }
+
+  /**
+   * Records the load of a pooled view whose style was loaded at the handoff, for which
+   * the load callback does not come again. The view renders fully once it gets its
+   * surface, which records the first full render.
+   */
+  void onMapLoadedBeforeHandoff() {
+    onDidFinishLoadingMap();
+  }
+
+  /** Clears the frame counters and the window; the load times are kept. */
+  void reset() {
+    windowCount = 0;
+    windowNext = 0;
+    frameCount = 0;
+    slowFrameCount = 0;
+    partialFrameCount = 0;
+  }
+
+  void dispose() {
+    mapView.removeOnWillStartRenderingFrameListener(this);
+    mapView.removeOnDidFinishRenderingFrameListener(this);
+    mapView.removeOnDidFinishRenderingMapListener(this);
+    mapView.removeOnDidFinishLoadingMapListener(this);
+  }
+
+  /**
+   * Returns the counters, whether the view came from the pool, the load times in
+   * milliseconds since the map got its view or null when not reached yet, and the
+   * histogram and percentiles in milliseconds of the recent frames.
+   */
+  Map<String, Object> toMap() {
+    final double[] durations = Arrays.copyOf(window, windowCount);
+    Arrays.sort(durations);
+    final List<Object> histogram = new ArrayList<>(HISTOGRAM_EDGES.length + 1);
+    int bucketStart = 0;
+    for (double edge : HISTOGRAM_EDGES) {
+      int bucketEnd = bucketStart;
+      while (bucketEnd < durations.length && durations[bucketEnd] < edge) {
+        bucketEnd++;
+      }
+      histogram.add(bucketEnd - bucketStart);
+      bucketStart = bucketEnd;
+    }
+    histogram.add(durations.length - bucketStart);
+
+    final Map<String, Object> stats = new HashMap<>(14);
+    stats.put("frameCount", frameCount);
+    stats.put("slowFrameCount", slowFrameCount);
+    stats.put("partialFrameCount", partialFrameCount);
+    stats.put("frameBudget", frameBudgetMillis);
+    stats.put("pooledView", pooled);
+    stats.put("mapLoaded", mapLoadedMillis);
+    stats.put("firstFullRender", firstFullRenderMillis);
+    stats.put("windowFrameCount", durations.length);
+    stats.put("histogramEdges", HISTOGRAM_EDGES);
+    stats.put("histogram", histogram);
+    stats.put("p50", percentile(durations, 0.50));
+    stats.put("p90", percentile(durations, 0.90));
+    stats.put("p99", percentile(durations, 0.99));
+    stats.put("max", durations.length == 0 ? 0 : durations[durations.length - 1]);
+    return stats;
+  }
+
+  private static double percentile(double[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    final int rank = (int) Math.ceil(percentile * sorted.length);
+    return sorted[Math.max(rank - 1, 0)];
+  }
+}
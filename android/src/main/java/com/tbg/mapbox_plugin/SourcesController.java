@@ -0,0 +1,190 @@
+package com.tbg.mapbox_plugin;
+
+import android.view.Choreographer;
+
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manages GeoJSON sources and the data-driven layers rendering them.
+ *
+ * Unlike annotations, features of these sources have no per-feature Java object,
+ * so large point and line datasets can be rendered cheaply.
+ */
+class SourcesController implements Choreographer.FrameCallback {
+  private final Map<String, FeatureStore> featureStores = new HashMap<>();
+  private final Set<String> dirtySourceIds = new LinkedHashSet<>();
+  private final Set<String> layerIds = new HashSet<>();
+  private MapboxMap mapboxMap;
+
+  void setMapboxMap(MapboxMap mapboxMap) {
+    this.mapboxMap = mapboxMap;
+  }
+
+  /**
+   * Adds a GeoJSON source. With {@code featureStore} its features are also kept by id
+   * on the native side so they can later be changed with {@link #upsertFeatures} and
+   * {@link #removeFeatures}.
+   */
+  void addGeoJsonSource(String sourceId, String geoJson, boolean featureStore) {
+    final Style style = style();
+    if (style.getSource(sourceId) != null) {
+      throw new IllegalArgumentException("Source already exists: " + sourceId);
+    }
+    if (featureStore) {
+      final FeatureStore store = new FeatureStore();
+      if (geoJson != null) {
+        store.reset(FeatureCollection.fromJson(geoJson).features());
+      }
+      featureStores.put(sourceId, store);
+      style.addSource(new GeoJsonSource(sourceId, store.toFeatureCollection()));
+    } else {
+      style.addSource(geoJson == null ? new GeoJsonSource(sourceId) : new GeoJsonSource(sourceId, geoJson));
+    }
+  }
+
+  void setGeoJsonSource(String sourceId, String geoJson) {
+    final FeatureStore store = featureStores.get(sourceId);
+    if (store != null) {
+      store.reset(FeatureCollection.fromJson(geoJson).features());
+      dirtySourceIds.remove(sourceId);
+      geoJsonSource(sourceId).setGeoJson(store.toFeatureCollection());
+    } else {
+      geoJsonSource(sourceId).setGeoJson(geoJson);
+    }
+  }
+
+  void removeSource(String sourceId) {
+    featureStores.remove(sourceId);
+    dirtySourceIds.remove(sourceId);
+    style().removeSource(sourceId);
+  }
+
+  /**
+   * Adds or replaces, by id, the features of a feature collection in the store of a
+   * source. The source is pushed to the map at most once per frame.
+   */
+  void upsertFeatures(String sourceId, String geoJson) {
+    featureStore(sourceId).upsert(FeatureCollection.fromJson(geoJson).features());
+    scheduleFlush(sourceId);
+  }
+
+  void removeFeatures(String sourceId, List<?> featureIds) {
+    featureStore(sourceId).remove(featureIds);
+    scheduleFlush(sourceId);
+  }
+
+  private FeatureStore featureStore(String sourceId) {
+    final FeatureStore store = featureStores.get(sourceId);
+    if (store == null) {
+      throw new IllegalArgumentException("Source has no feature store: " + sourceId);
+    }
+    return store;
+  }
+
+  private void scheduleFlush(String sourceId) {
+    if (dirtySourceIds.isEmpty()) {
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+    dirtySourceIds.add(sourceId);
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    final Style style = mapboxMap == null ? null : mapboxMap.getStyle();
+    for (String sourceId : dirtySourceIds) {
+      final GeoJsonSource source = style == null ? null : style.<GeoJsonSource>getSourceAs(sourceId);
+      if (source != null) {
+        source.setGeoJson(featureStores.get(sourceId).toFeatureCollection());
+      }
+    }
+    dirtySourceIds.clear();
+  }
+
+  void dispose() {
+    Choreographer.getInstance().removeFrameCallback(this);
+    dirtySourceIds.clear();
+    featureStores.clear();
+    layerIds.clear();
+  }
+
+  void addLayer(String layerId, String sourceId, String type, PropertyValue<?>[] properties, String belowLayerId) {
+    final Layer layer;
+    switch (type) {
+      case "symbol":
+        layer = new SymbolLayer(layerId, sourceId);
+        break;
+      case "circle":
+        layer = new CircleLayer(layerId, sourceId);
+        break;
+      case "line":
+        layer = new LineLayer(layerId, sourceId);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown layer type: " + type);
+    }
+    layer.setProperties(properties);
+    if (belowLayerId == null) {
+      style().addLayer(layer);
+    } else {
+      style().addLayerBelow(layer, belowLayerId);
+    }
+    layerIds.add(layerId);
+  }
+
+  void setLayerProperties(String layerId, PropertyValue<?>[] properties) {
+    final Layer layer = style().getLayer(layerId);
+    if (layer == null) {
+      throw new IllegalArgumentException("Unknown layer: " + layerId);
+    }
+    layer.setProperties(properties);
+  }
+
+  void removeLayer(String layerId) {
+    style().removeLayer(layerId);
+    layerIds.remove(layerId);
+  }
+
+  /** Returns the bottom-most layer added here that the given style has, or null. */
+  String lowestLayerId(Style style) {
+    if (layerIds.isEmpty()) {
+      return null;
+    }
+    for (Layer layer : style.getLayers()) {
+      if (layerIds.contains(layer.getId())) {
+        return layer.getId();
+      }
+    }
+    return null;
+  }
+
+  GeoJsonSource geoJsonSource(String sourceId) {
+    final GeoJsonSource source = style().getSourceAs(sourceId);
+    if (source == null) {
+      throw new IllegalArgumentException("Unknown GeoJSON source: " + sourceId);
+    }
+    return source;
+  }
+
+  private Style style() {
+    final Style style = mapboxMap == null ? null : mapboxMap.getStyle();
+    if (style == null) {
+      throw new IllegalStateException("The map style is not loaded yet");
+    }
+    return style;
+  }
+}
@@ -0,0 +1,137 @@
+package com.tbg.mapbox_plugin;
+
+import android.content.Context;
+
+import com.mapbox.mapboxsdk.maps.Style;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Process-wide registry of map styles referenced by key.
+ *
+ * A registered style JSON is written once to a disk cache under the SHA-1 of its
+ * contents, and maps reference it with a style string of the form "registered://key",
+ * which is resolved to the URL of the cached file. The SDK reads the JSON from that
+ * file, so a large style crosses the platform channel and the JNI boundary once
+ * instead of on every map open and restyle. An index next to the cached files maps
+ * keys to digests, so a style registered in an earlier run can be preloaded by key
+ * without being sent again.
+ *
+ * Registering and preloading do disk work and must not run on the platform thread.
+ */
+final class StyleRegistry {
+  static final String SCHEME = "registered://";
+  private static final String DIRECTORY_NAME = "mapbox_styles";
+  private static final String INDEX_NAME = "index.properties";
+
+  // file URLs of the registered styles by key
+  private static final Map<String, String> urls = new HashMap<>();
+
+  private StyleRegistry() {
+  }
+
+  /**
+   * Stores the style JSON under the key, writing it to the disk cache unless a style
+   * with the same digest is cached already. Returns the digest.
+   */
+  static synchronized String register(Context context, String key, byte[] json) throws IOException {
+    final String digest = Convert.toSha1Hex(json);
+    final File directory = directory(context);
+    final File file = new File(directory, digest + ".json");
+    if (!file.exists()) {
+      final File temp = new File(directory, digest + ".tmp");
+      try (FileOutputStream out = new FileOutputStream(temp)) {
+        out.write(json);
+        out.getFD().sync();
+      }
+      if (!temp.renameTo(file)) {
+        temp.delete();
+        throw new IOException("Unable to write " + file);
+      }
+    }
+
+    final Properties index = readIndex(directory);
+    final String previousDigest = (String) index.setProperty(key, digest);
+    writeIndex(directory, index);
+    if (previousDigest != null && !previousDigest.equals(digest) && !index.containsValue(previousDigest)) {
+      new File(directory, previousDigest + ".json").delete();
+    }
+    urls.put(key, "file://" + file.getPath());
+    return digest;
+  }
+
+  /**
+   * Makes a style registered in an earlier run available under its key. Returns its
+   * digest, or null when the disk cache has no style for the key.
+   */
+  static synchronized String preload(Context context, String key) throws IOException {
+    final File directory = directory(context);
+    final String digest = readIndex(directory).getProperty(key);
+    if (digest == null) {
+      return null;
+    }
+    final File file = new File(directory, digest + ".json");
+    if (!file.exists()) {
+      return null;
+    }
+    urls.put(key, "file://" + file.getPath());
+    return digest;
+  }
+
+  /**
+   * Returns a style builder for a style JSON, a style URL or a registered key, or null
+   * when the key is not registered in this run.
+   */
+  static Style.Builder toStyleBuilder(String styleString) {
+    if (styleString.startsWith(SCHEME)) {
+      final String url;
+      synchronized (StyleRegistry.class) {
+        url = urls.get(styleString.substring(SCHEME.length()));
+      }
+      return url == null ? null : new Style.Builder().fromUri(url);
+    } else if (styleString.startsWith("{") || styleString.startsWith("[")) {
+      return new Style.Builder().fromJson(styleString);
+    } else {
+      return new Style.Builder().fromUrl(styleString);
+    }
+  }
+
+  private static File directory(Context context) throws IOException {
+    final File directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create " + directory);
+    }
+    return directory;
+  }
+
+  private static Properties readIndex(File directory) throws IOException {
+    final Properties index = new Properties();
+    final File file = new File(directory, INDEX_NAME);
+    if (file.exists()) {
+      try (InputStream in = new FileInputStream(file)) {
+        index.load(in);
+      }
+    }
+    return index;
+  }
+
+  private static void writeIndex(File directory, Properties index) throws IOException {
+    final File file = new File(directory, INDEX_NAME);
+    final File temp = new File(directory, INDEX_NAME + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp)) {
+      index.store(out, null);
+      out.getFD().sync();
+    }
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      throw new IOException("Unable to write " + file);
+    }
+  }
+}
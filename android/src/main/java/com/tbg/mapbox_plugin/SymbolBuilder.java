@@ -25,6 +25,10 @@ class SymbolBuilder implements SymbolOptionsSink {
     return symbolManager.create(symbolOptions);
   }
 
+  SymbolOptions getSymbolOptions() {
+    return symbolOptions;
+  }
+
   @Override
   public void setIconSize(float iconSize) {
     symbolOptions.withIconSize(iconSize);
@@ -35,6 +35,10 @@ class SymbolController implements SymbolOptionsSink {
     return consumeTapEvents;
   }
 
+  Symbol getSymbol() {
+    return symbol;
+  }
+
   void remove(SymbolManager symbolManager) {
     symbolManager.delete(symbol);
   }
@@ -0,0 +1,326 @@
+package com.tbg.mapbox_plugin;
+
+import android.os.SystemClock;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.annotation.OnSymbolDragListener;
+import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
+import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
+import com.mapbox.mapboxsdk.plugins.annotation.SymbolOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the specs of virtual symbols and materializes as symbols of the
+ * {@link SymbolManager} only those inside the visible bounds plus a margin.
+ *
+ * Virtual symbols have negative plugin ids, so they never collide with the ids of
+ * regular symbols, which are those of the SDK annotations; a virtual symbol keeps its
+ * id whether or not it is currently materialized. Positions are kept in the shared
+ * {@link AnnotationIndex}, so the annotation queries also find virtual symbols.
+ *
+ * A spec only holds the position and the option map received from Flutter; the
+ * options are interpreted into symbol options when the symbol is materialized, so
+ * the many symbols outside the viewport cost no SDK option objects.
+ */
+class VirtualSymbolsController implements OnSymbolDragListener {
+  // fraction of the viewport size added on each side of the materialized area
+  private static final double VIEWPORT_MARGIN = 0.5;
+  // minimal interval between refreshes while the camera moves
+  private static final long MOVE_REFRESH_INTERVAL_MILLIS = 250;
+
+  /** The position and the raw options of a virtual symbol. */
+  private static final class Spec {
+    double latitude;
+    double longitude;
+    Map<?, ?> options;
+
+    Spec(LatLng latLng, Map<?, ?> options) {
+      this.latitude = latLng.getLatitude();
+      this.longitude = latLng.getLongitude();
+      this.options = options;
+    }
+  }
+
+  private final AnnotationIndex annotationIndex;
+  private final LongObjectMap<Spec> specs = new LongObjectMap<>();
+  // by plugin id
+  private final LongObjectMap<Symbol> materialized = new LongObjectMap<>();
+  // plugin ids by SDK annotation id
+  private final LongLongMap virtualIds = new LongLongMap();
+  // scratch set of the ids to keep materialized, reused by every refresh
+  private final LongLongMap keep = new LongLongMap();
+  private long lastVirtualId = 0;
+  private MapboxMap mapboxMap;
+  private SymbolManager symbolManager;
+  private long lastRefreshTime = 0;
+  private boolean dirty = false;
+  private double materializedSouth;
+  private double materializedWest;
+  private double materializedNorth;
+  private double materializedEast;
+
+  VirtualSymbolsController(AnnotationIndex annotationIndex) {
+    this.annotationIndex = annotationIndex;
+  }
+
+  void setMapboxMap(MapboxMap mapboxMap) {
+    this.mapboxMap = mapboxMap;
+  }
+
+  void setSymbolManager(SymbolManager symbolManager) {
+    this.symbolManager = symbolManager;
+    symbolManager.addDragListener(this);
+  }
+
+  static boolean isVirtualId(long symbolId) {
+    return symbolId < 0;
+  }
+
+  /**
+   * Stores the specs of new virtual symbols and returns their plugin ids. Every entry is
+   * checked before any is stored, so a bad entry adds nothing.
+   */
+  List<String> addAll(List<Object> options) {
+    final List<LatLng> latLngs = new ArrayList<>(options.size());
+    for (Object o : options) {
+      final LatLng latLng = interpret(o);
+      if (latLng == null) {
+        throw new IllegalArgumentException("A virtual symbol needs a geometry");
+      }
+      latLngs.add(latLng);
+    }
+    final List<String> newSymbolIds = new ArrayList<>(options.size());
+    for (int i = 0; i < latLngs.size(); i++) {
+      final long symbolId = --lastVirtualId;
+      specs.put(symbolId, new Spec(latLngs.get(i), Convert.toMap(options.get(i))));
+      annotationIndex.putPoint(AnnotationIndex.SYMBOL, symbolId, latLngs.get(i));
+      newSymbolIds.add(String.valueOf(symbolId));
+    }
+    invalidate();
+    return newSymbolIds;
+  }
+
+  /**
+   * Changes the spec of a virtual symbol, and the symbol itself when materialized.
+   * Returns whether a materialized symbol changed, which needs a symbol source refresh.
+   */
+  boolean change(long symbolId, Object options) {
+    final Spec spec = spec(symbolId);
+    final LatLng latLng = interpret(options);
+    // options are set key by key, so merging the maps is the same as applying both
+    final Map<Object, Object> merged = new HashMap<Object, Object>(spec.options);
+    merged.putAll(Convert.toMap(options));
+    // the position is kept in the spec, where drags update it
+    merged.remove("geometry");
+    spec.options = merged;
+    if (latLng != null) {
+      spec.latitude = latLng.getLatitude();
+      spec.longitude = latLng.getLongitude();
+      annotationIndex.putPoint(AnnotationIndex.SYMBOL, symbolId, latLng);
+    }
+    final Symbol symbol = materialized.get(symbolId);
+    if (symbol != null) {
+      Convert.interpretSymbolOptions(options, new SymbolController(symbol, false, null));
+    }
+    // a moved symbol may enter or leave the materialized area
+    invalidate();
+    return symbol != null;
+  }
+
+  void update(long symbolId, Object options) {
+    if (change(symbolId, options)) {
+      symbolManager.update(materialized.get(symbolId));
+    }
+  }
+
+  /**
+   * Drops a virtual symbol. Returns whether it was materialized, in which case its
+   * symbol was removed without refreshing the symbol source.
+   */
+  boolean removeWithoutRefresh(long symbolId) {
+    if (specs.remove(symbolId) == null) {
+      return false;
+    }
+    annotationIndex.remove(AnnotationIndex.SYMBOL, symbolId);
+    final Symbol symbol = materialized.remove(symbolId);
+    if (symbol == null) {
+      return false;
+    }
+    virtualIds.remove(symbol.getId());
+    symbolManager.getAnnotations().remove(symbol.getId());
+    return true;
+  }
+
+  void remove(long symbolId) {
+    if (removeWithoutRefresh(symbolId)) {
+      symbolManager.updateSource();
+    }
+  }
+
+  /** Returns the plugin id of a materialized virtual symbol, or 0 for other symbols. */
+  long virtualIdOf(long annotationId) {
+    return virtualIds.get(annotationId);
+  }
+
+  void onCameraMove() {
+    if (specs.isEmpty() || SystemClock.uptimeMillis() - lastRefreshTime < MOVE_REFRESH_INTERVAL_MILLIS) {
+      return;
+    }
+    refresh();
+  }
+
+  void onCameraIdle() {
+    if (!specs.isEmpty() || !materialized.isEmpty()) {
+      refresh();
+    }
+  }
+
+  /** Schedules a refresh once the current platform message is handled. */
+  private void invalidate() {
+    if (dirty || mapboxMap == null) {
+      return;
+    }
+    dirty = true;
+    BackgroundTasks.runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        if (dirty) {
+          refresh();
+        }
+      }
+    });
+  }
+
+  /**
+   * Materializes the virtual symbols around the viewport and drops the others, unless
+   * the viewport is still inside the area materialized last time.
+   */
+  private void refresh() {
+    if (mapboxMap == null || symbolManager == null) {
+      return;
+    }
+    lastRefreshTime = SystemClock.uptimeMillis();
+    final LatLngBounds visible = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+    final double south = visible.getLatSouth();
+    final double north = visible.getLatNorth();
+    // a viewport crossing the antimeridian materializes every longitude
+    final boolean wraps = visible.getLonWest() > visible.getLonEast();
+    final double west = wraps ? -180 : visible.getLonWest();
+    final double east = wraps ? 180 : visible.getLonEast();
+    if (!dirty && south >= materializedSouth && west >= materializedWest
+      && north <= materializedNorth && east <= materializedEast) {
+      return;
+    }
+    dirty = false;
+    final double marginY = (north - south) * VIEWPORT_MARGIN;
+    final double marginX = (east - west) * VIEWPORT_MARGIN;
+    materializedSouth = Math.max(-90, south - marginY);
+    materializedNorth = Math.min(90, north + marginY);
+    materializedWest = Math.max(-180, west - marginX);
+    materializedEast = Math.min(180, east + marginX);
+
+    final long[] visibleIds = annotationIndex.queryIds(AnnotationIndex.SYMBOL,
+      materializedSouth, materializedWest, materializedNorth, materializedEast);
+    keep.clear();
+    final long[] toMaterialize = new long[visibleIds.length];
+    int materializeCount = 0;
+    final List<SymbolOptions> symbolOptionsList = new ArrayList<>();
+    for (long symbolId : visibleIds) {
+      if (!isVirtualId(symbolId)) {
+        continue;
+      }
+      keep.put(symbolId, 1);
+      if (!materialized.containsKey(symbolId)) {
+        toMaterialize[materializeCount++] = symbolId;
+        symbolOptionsList.add(materialize(specs.get(symbolId)));
+      }
+    }
+
+    boolean changed = false;
+    final long[] toDrop = new long[materialized.size()];
+    int dropCount = 0;
+    for (int slot = 0; slot < materialized.capacity(); slot++) {
+      final Symbol symbol = materialized.valueAt(slot);
+      if (symbol != null && !keep.containsKey(materialized.keyAt(slot))) {
+        toDrop[dropCount++] = materialized.keyAt(slot);
+      }
+    }
+    for (int i = 0; i < dropCount; i++) {
+      final Symbol symbol = materialized.remove(toDrop[i]);
+      virtualIds.remove(symbol.getId());
+      symbolManager.getAnnotations().remove(symbol.getId());
+      changed = true;
+    }
+
+    if (!symbolOptionsList.isEmpty()) {
+      // a single create call refreshes the symbol source for drops and additions
+      final List<Symbol> symbols = symbolManager.create(symbolOptionsList);
+      for (int i = 0; i < symbols.size(); i++) {
+        materialized.put(toMaterialize[i], symbols.get(i));
+        virtualIds.put(symbols.get(i).getId(), toMaterialize[i]);
+      }
+    } else if (changed) {
+      symbolManager.updateSource();
+    }
+  }
+
+  boolean contains(long symbolId) {
+    return specs.containsKey(symbolId);
+  }
+
+  /** Checks options by interpreting them into a throwaway builder; returns their geometry. */
+  private static LatLng interpret(Object options) {
+    final SymbolBuilder symbolBuilder = new SymbolBuilder(null);
+    Convert.interpretSymbolOptions(options, symbolBuilder);
+    return symbolBuilder.getSymbolOptions().getLatLng();
+  }
+
+  private SymbolOptions materialize(Spec spec) {
+    final SymbolBuilder symbolBuilder = new SymbolBuilder(symbolManager);
+    Convert.interpretSymbolOptions(spec.options, symbolBuilder);
+    symbolBuilder.setGeometry(new LatLng(spec.latitude, spec.longitude));
+    return symbolBuilder.getSymbolOptions();
+  }
+
+  private Spec spec(long symbolId) {
+    final Spec spec = specs.get(symbolId);
+    if (spec == null) {
+      throw new IllegalArgumentException("Unknown symbol: " + symbolId);
+    }
+    return spec;
+  }
+
+  void dispose() {
+    specs.clear();
+    materialized.clear();
+    virtualIds.clear();
+    keep.clear();
+    dirty = false;
+  }
+
+  @Override
+  public void onAnnotationDragStarted(Symbol symbol) {
+  }
+
+  @Override
+  public void onAnnotationDrag(Symbol symbol) {
+  }
+
+  @Override
+  public void onAnnotationDragFinished(Symbol symbol) {
+    final long symbolId = virtualIdOf(symbol.getId());
+    if (symbolId != 0) {
+      final LatLng latLng = symbol.getLatLng();
+      final Spec spec = specs.get(symbolId);
+      spec.latitude = latLng.getLatitude();
+      spec.longitude = latLng.getLongitude();
+      annotationIndex.putPoint(AnnotationIndex.SYMBOL, symbolId, latLng);
+    }
+  }
+}
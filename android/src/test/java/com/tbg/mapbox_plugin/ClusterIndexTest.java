@@ -0,0 +1,163 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterIndexTest {
+  private static final int MIN_ZOOM = 0;
+  private static final int MAX_ZOOM = 16;
+  private static final double RADIUS = 40;
+  private static final double EXTENT = 512;
+
+  @Test
+  public void everyZoomAccountsForEveryPointOnce() {
+    final int count = 2000;
+    final double[] latLngs = randomLatLngs(count, 11);
+    final ClusterIndex index = new ClusterIndex(latLngs, count, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+    for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM + 1; zoom++) {
+      final List<ClusterIndex.Node> nodes = index.getClusters(-180, -90, 180, 90, zoom);
+      final Set<Integer> leaves = new HashSet<>();
+      int numPoints = 0;
+      for (ClusterIndex.Node node : nodes) {
+        numPoints += node.numPoints;
+        if (node.isCluster()) {
+          final List<Integer> clusterLeaves = index.getLeaves(node.id, Integer.MAX_VALUE, 0);
+          assertEquals(node.numPoints, clusterLeaves.size());
+          for (int leaf : clusterLeaves) {
+            assertTrue("leaf in two clusters: " + leaf, leaves.add(leaf));
+          }
+          int childPoints = 0;
+          for (ClusterIndex.Node child : index.getChildren(node.id)) {
+            childPoints += child.numPoints;
+          }
+          assertEquals(node.numPoints, childPoints);
+        } else {
+          assertEquals(1, node.numPoints);
+          assertTrue(leaves.add(node.index));
+        }
+      }
+      assertEquals("zoom " + zoom, count, numPoints);
+      assertEquals(count, leaves.size());
+    }
+  }
+
+  @Test
+  public void pointsAreUnclusteredPastMaxZoom() {
+    final int count = 500;
+    final double[] latLngs = randomLatLngs(count, 12);
+    final ClusterIndex index = new ClusterIndex(latLngs, count, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+    final List<ClusterIndex.Node> nodes = index.getClusters(-180, -90, 180, 90, MAX_ZOOM + 5);
+    assertEquals(count, nodes.size());
+    for (ClusterIndex.Node node : nodes) {
+      assertFalse(node.isCluster());
+      assertEquals(latLngs[2 * node.index], node.latitude(), 1e-9);
+      assertEquals(latLngs[2 * node.index + 1], node.longitude(), 1e-9);
+    }
+  }
+
+  @Test
+  public void clusterSplitsAtExpansionZoom() {
+    // 0.001 degrees of longitude is within the 40 pixel radius up to zoom 14
+    final double[] latLngs = {0, 0, 0, 0.001, 0, 90};
+    final ClusterIndex index = new ClusterIndex(latLngs, 3, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+
+    final List<ClusterIndex.Node> atZoom0 = index.getClusters(-180, -90, 180, 90, 0);
+    assertEquals(2, atZoom0.size());
+    final ClusterIndex.Node cluster = atZoom0.get(0).isCluster() ? atZoom0.get(0) : atZoom0.get(1);
+    assertTrue(cluster.isCluster());
+    assertEquals(2, cluster.numPoints);
+    assertEquals(0.0005, cluster.longitude(), 1e-9);
+    assertEquals(15, index.getClusterExpansionZoom(cluster.id));
+
+    assertEquals(2, index.getClusters(-180, -90, 180, 90, 14).size());
+    assertEquals(3, index.getClusters(-180, -90, 180, 90, 15).size());
+
+    final List<Integer> leaves = index.getLeaves(cluster.id, Integer.MAX_VALUE, 0);
+    Collections.sort(leaves);
+    assertEquals(listOf(0, 1), leaves);
+  }
+
+  @Test
+  public void leavesArePaginated() {
+    final int count = 300;
+    final double[] latLngs = new double[2 * count];
+    final Random random = new Random(13);
+    for (int i = 0; i < count; i++) {
+      // all within a few meters, so a single cluster at low zooms
+      latLngs[2 * i] = random.nextDouble() * 1e-4;
+      latLngs[2 * i + 1] = random.nextDouble() * 1e-4;
+    }
+    final ClusterIndex index = new ClusterIndex(latLngs, count, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+    final List<ClusterIndex.Node> nodes = index.getClusters(-180, -90, 180, 90, 0);
+    assertEquals(1, nodes.size());
+    final int clusterId = nodes.get(0).id;
+
+    final List<Integer> all = index.getLeaves(clusterId, Integer.MAX_VALUE, 0);
+    assertEquals(count, all.size());
+    final List<Integer> paged = new ArrayList<>();
+    for (int offset = 0; offset < count; offset += 70) {
+      final List<Integer> page = index.getLeaves(clusterId, 70, offset);
+      assertEquals(Math.min(70, count - offset), page.size());
+      paged.addAll(page);
+    }
+    assertEquals(all, paged);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownClusterIdIsRejected() {
+    final double[] latLngs = {0, 0, 0, 0.001};
+    final ClusterIndex index = new ClusterIndex(latLngs, 2, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+    index.getChildren(12345);
+  }
+
+  @Test
+  public void boundsCrossingTheAntimeridianAreSplit() {
+    final double[] latLngs = {0, 179.5, 0, -179.5, 0, 0, 0, 170, 0, -170};
+    final ClusterIndex index = new ClusterIndex(latLngs, 5, MIN_ZOOM, MAX_ZOOM, RADIUS, EXTENT);
+    final int zoom = MAX_ZOOM + 1;
+
+    assertEquals(listOf(0, 1), indices(index.getClusters(179, -10, -179, 10, zoom)));
+    // the same bounds with the west edge unwrapped
+    assertEquals(listOf(0, 1), indices(index.getClusters(-181, -10, -179, 10, zoom)));
+    assertEquals(listOf(0, 1, 3, 4), indices(index.getClusters(165, -10, -165, 10, zoom)));
+    assertEquals(listOf(2), indices(index.getClusters(-10, -10, 10, 10, zoom)));
+    // bounds spanning the whole world wrap to every point
+    assertEquals(listOf(0, 1, 2, 3, 4), indices(index.getClusters(-200, -10, 200, 10, zoom)));
+  }
+
+  private static double[] randomLatLngs(int count, long seed) {
+    final Random random = new Random(seed);
+    final double[] latLngs = new double[2 * count];
+    for (int i = 0; i < count; i++) {
+      latLngs[2 * i] = random.nextDouble() * 170 - 85;
+      latLngs[2 * i + 1] = random.nextDouble() * 360 - 180;
+    }
+    return latLngs;
+  }
+
+  private static List<Integer> indices(List<ClusterIndex.Node> nodes) {
+    final List<Integer> indices = new ArrayList<>(nodes.size());
+    for (ClusterIndex.Node node : nodes) {
+      assertFalse(node.isCluster());
+      indices.add(node.index);
+    }
+    Collections.sort(indices);
+    return indices;
+  }
+
+  private static List<Integer> listOf(Integer... values) {
+    final List<Integer> list = new ArrayList<>();
+    Collections.addAll(list, values);
+    return list;
+  }
+}
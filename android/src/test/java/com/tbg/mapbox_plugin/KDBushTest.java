@@ -0,0 +1,78 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KDBushTest {
+  private static final int COUNT = 5000;
+
+  private final double[] xs = new double[COUNT];
+  private final double[] ys = new double[COUNT];
+
+  public KDBushTest() {
+    final Random random = new Random(7);
+    for (int i = 0; i < COUNT; i++) {
+      // integer coordinates give plenty of duplicates and points on query edges
+      xs[i] = random.nextInt(100);
+      ys[i] = random.nextInt(100);
+    }
+  }
+
+  @Test
+  public void rangeMatchesBruteForce() {
+    final KDBush index = new KDBush(xs, ys, COUNT);
+    final Random random = new Random(8);
+    for (int q = 0; q < 200; q++) {
+      final double minX = random.nextInt(100);
+      final double minY = random.nextInt(100);
+      final double maxX = minX + random.nextInt(40);
+      final double maxY = minY + random.nextInt(40);
+      final List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < COUNT; i++) {
+        if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+          expected.add(i);
+        }
+      }
+      assertEquals(expected, sorted(index.range(minX, minY, maxX, maxY)));
+    }
+  }
+
+  @Test
+  public void withinMatchesBruteForce() {
+    final KDBush index = new KDBush(xs, ys, COUNT);
+    final Random random = new Random(9);
+    for (int q = 0; q < 200; q++) {
+      final double qx = random.nextDouble() * 100;
+      final double qy = random.nextDouble() * 100;
+      final double r = random.nextDouble() * 20;
+      final List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < COUNT; i++) {
+        final double dx = xs[i] - qx;
+        final double dy = ys[i] - qy;
+        if (dx * dx + dy * dy <= r * r) {
+          expected.add(i);
+        }
+      }
+      assertEquals(expected, sorted(index.within(qx, qy, r)));
+    }
+  }
+
+  @Test
+  public void emptyIndex() {
+    final KDBush index = new KDBush(new double[0], new double[0], 0);
+    assertTrue(index.range(-1, -1, 1, 1).isEmpty());
+    assertTrue(index.within(0, 0, 1).isEmpty());
+  }
+
+  private static List<Integer> sorted(List<Integer> ids) {
+    Collections.sort(ids);
+    return ids;
+  }
+}
@@ -0,0 +1,74 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LineSimplifierTest {
+
+  @Test
+  public void ranksMatchDouglasPeucker() {
+    final Random random = new Random(31);
+    for (int line = 0; line < 50; line++) {
+      final int count = 2 + random.nextInt(300);
+      final double[] xs = new double[count];
+      final double[] ys = new double[count];
+      double x = 0;
+      double y = 0;
+      for (int i = 0; i < count; i++) {
+        // a random walk, closer to real lines than scattered points
+        x += random.nextDouble() - 0.3;
+        y += random.nextDouble() - 0.5;
+        xs[i] = x;
+        ys[i] = y;
+      }
+      final double[] ranks = LineSimplifier.rank(xs, ys);
+      for (double tolerance : new double[] {0, 0.01, 0.1, 0.5, 1, 2, 5, 20}) {
+        final boolean[] expected = new boolean[count];
+        expected[0] = true;
+        expected[count - 1] = true;
+        douglasPeucker(xs, ys, 0, count - 1, tolerance * tolerance, expected);
+        for (int i = 0; i < count; i++) {
+          assertEquals("line " + line + " vertex " + i + " tolerance " + tolerance,
+            expected[i], ranks[i] > tolerance * tolerance);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void endpointsAlwaysStay() {
+    final double[] ranks = LineSimplifier.rank(new double[] {0, 1, 2}, new double[] {0, 0, 0});
+    assertTrue(Double.isInfinite(ranks[0]));
+    assertTrue(Double.isInfinite(ranks[2]));
+    // a collinear vertex goes at any tolerance
+    assertEquals(0, ranks[1], 0);
+  }
+
+  @Test
+  public void shortLines() {
+    assertEquals(0, LineSimplifier.rank(new double[0], new double[0]).length);
+    assertTrue(Double.isInfinite(LineSimplifier.rank(new double[] {1}, new double[] {1})[0]));
+  }
+
+  /** Textbook recursive Douglas-Peucker, marking the vertices kept between two kept ones. */
+  private static void douglasPeucker(double[] xs, double[] ys, int first, int last, double toleranceSq, boolean[] kept) {
+    double maxDistanceSq = -1;
+    int index = -1;
+    for (int i = first + 1; i < last; i++) {
+      final double distanceSq = AnnotationIndex.segmentDistanceSq(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+      if (distanceSq > maxDistanceSq) {
+        maxDistanceSq = distanceSq;
+        index = i;
+      }
+    }
+    if (index != -1 && maxDistanceSq > toleranceSq) {
+      kept[index] = true;
+      douglasPeucker(xs, ys, first, index, toleranceSq, kept);
+      douglasPeucker(xs, ys, index, last, toleranceSq, kept);
+    }
+  }
+}
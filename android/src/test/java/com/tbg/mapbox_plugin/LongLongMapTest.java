@@ -0,0 +1,64 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongLongMapTest {
+
+  @Test
+  public void putGetRemove() {
+    final LongLongMap map = new LongLongMap();
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.put(1, -1));
+    assertEquals(0, map.put(-1, 7));
+    assertEquals(-1, map.put(1, -2));
+    assertEquals(2, map.size());
+    assertEquals(-2, map.get(1));
+    assertEquals(7, map.get(-1));
+    assertEquals(0, map.get(2));
+
+    assertEquals(7, map.remove(-1));
+    assertEquals(0, map.remove(-1));
+    assertFalse(map.containsKey(-1));
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsZeroValues() {
+    new LongLongMap().put(1, 0);
+  }
+
+  @Test
+  public void matchesHashMapUnderRandomOperations() {
+    final LongLongMap map = new LongLongMap();
+    final Map<Long, Long> expected = new HashMap<>();
+    final Random random = new Random(43);
+    for (int i = 0; i < 200000; i++) {
+      final long key = random.nextInt(2000) - 1000;
+      final long value = random.nextInt(1000) + 1;
+      final Long previous;
+      if (random.nextInt(3) < 2) {
+        previous = expected.put(key, value);
+        assertEquals(previous == null ? 0 : previous, map.put(key, value));
+      } else {
+        previous = expected.remove(key);
+        assertEquals(previous == null ? 0 : previous, map.remove(key));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (long key = -1000; key < 1000; key++) {
+      final Long value = expected.get(key);
+      assertEquals(value == null ? 0 : value, map.get(key));
+    }
+  }
+}
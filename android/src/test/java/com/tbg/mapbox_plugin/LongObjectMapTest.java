@@ -0,0 +1,125 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LongObjectMapTest {
+
+  @Test
+  public void putGetRemove() {
+    final LongObjectMap<String> map = new LongObjectMap<>();
+    assertTrue(map.isEmpty());
+    assertNull(map.put(1, "a"));
+    assertNull(map.put(-1, "b"));
+    assertNull(map.put(Long.MAX_VALUE, "c"));
+    assertEquals("a", map.put(1, "d"));
+    assertEquals(3, map.size());
+    assertEquals("d", map.get(1));
+    assertEquals("b", map.get(-1));
+    assertEquals("c", map.get(Long.MAX_VALUE));
+    assertNull(map.get(2));
+
+    assertEquals("b", map.remove(-1));
+    assertNull(map.remove(-1));
+    assertFalse(map.containsKey(-1));
+    assertEquals(2, map.size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNullValues() {
+    new LongObjectMap<String>().put(1, null);
+  }
+
+  @Test
+  public void rehashKeepsEntries() {
+    final LongObjectMap<Long> map = new LongObjectMap<>();
+    final int count = 10000;
+    for (long key = 0; key < count; key++) {
+      map.put(key * 31, key);
+    }
+    assertEquals(count, map.size());
+    assertTrue(map.capacity() >= count);
+    for (long key = 0; key < count; key++) {
+      assertEquals(Long.valueOf(key), map.get(key * 31));
+    }
+  }
+
+  @Test
+  public void removalKeepsProbeChains() {
+    // keys one capacity apart share a home slot, so they form a single probe chain
+    final LongObjectMap<Long> map = new LongObjectMap<>();
+    final int capacity = map.capacity();
+    for (long i = 0; i < 8; i++) {
+      map.put(i * capacity, i);
+    }
+    map.remove(0);
+    map.remove(3L * capacity);
+    for (long i = 0; i < 8; i++) {
+      if (i == 0 || i == 3) {
+        assertNull(map.get(i * capacity));
+      } else {
+        assertEquals(Long.valueOf(i), map.get(i * capacity));
+      }
+    }
+  }
+
+  @Test
+  public void matchesHashMapUnderRandomOperations() {
+    final LongObjectMap<Long> map = new LongObjectMap<>();
+    final Map<Long, Long> expected = new HashMap<>();
+    final Random random = new Random(42);
+    for (int i = 0; i < 200000; i++) {
+      // a small key range makes removals of present keys and long probe chains common
+      final long key = random.nextInt(2000) - 1000;
+      final long value = random.nextLong();
+      switch (random.nextInt(3)) {
+        case 0:
+        case 1:
+          assertEquals(expected.put(key, value), map.put(key, value));
+          break;
+        default:
+          assertEquals(expected.remove(key), map.remove(key));
+          break;
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (long key = -1000; key < 1000; key++) {
+      assertEquals(expected.get(key), map.get(key));
+    }
+  }
+
+  @Test
+  public void slotIterationVisitsEveryEntryOnce() {
+    final LongObjectMap<Long> map = new LongObjectMap<>();
+    for (long key = 0; key < 100; key++) {
+      map.put(key, key * 2);
+    }
+    for (long key = 0; key < 100; key += 3) {
+      map.remove(key);
+    }
+    final Map<Long, Long> visited = new HashMap<>();
+    for (int slot = 0; slot < map.capacity(); slot++) {
+      final Long value = map.valueAt(slot);
+      if (value != null) {
+        assertNull(visited.put(map.keyAt(slot), value));
+      }
+    }
+    assertEquals(map.size(), visited.size());
+    for (Map.Entry<Long, Long> entry : visited.entrySet()) {
+      assertTrue(entry.getKey() % 3 != 0);
+      assertEquals(Long.valueOf(entry.getKey() * 2), entry.getValue());
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.tbg.mapbox_plugin;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RTreeTest {
+
+  /** A box with an id, so results can be compared by value. */
+  private static final class Item extends RTree.Entry {
+    final int id;
+
+    Item(int id, double minX, double minY, double maxX, double maxY) {
+      this.id = id;
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+    }
+  }
+
+  @Test
+  public void searchMatchesBruteForceAfterInsert() {
+    final List<Item> items = randomItems(3000, 21);
+    final RTree tree = new RTree();
+    for (Item item : items) {
+      tree.insert(item);
+    }
+    assertSearchMatches(tree, items, 22);
+  }
+
+  @Test
+  public void searchMatchesBruteForceAfterLoad() {
+    final List<Item> items = randomItems(3000, 23);
+    final RTree tree = new RTree();
+    tree.load(items);
+    assertSearchMatches(tree, items, 24);
+  }
+
+  @Test
+  public void loadIntoNonEmptyTree() {
+    final List<Item> items = randomItems(3000, 25);
+    final RTree tree = new RTree();
+    // bulk loads of very different sizes are merged at different heights
+    tree.load(items.subList(0, 2000));
+    tree.load(items.subList(2000, 2050));
+    tree.load(items.subList(2050, 2053));
+    for (Item item : items.subList(2053, 3000)) {
+      tree.insert(item);
+    }
+    assertSearchMatches(tree, items, 26);
+  }
+
+  @Test
+  public void removeKeepsTheRestSearchable() {
+    final List<Item> items = randomItems(3000, 27);
+    final RTree tree = new RTree();
+    tree.load(items);
+    final List<Item> kept = new ArrayList<>();
+    for (Item item : items) {
+      if (item.id % 3 == 0) {
+        assertTrue(tree.remove(item));
+      } else {
+        kept.add(item);
+      }
+    }
+    assertFalse(tree.remove(items.get(0)));
+    // an equal box is not the same item
+    assertFalse(tree.remove(new Item(-1, items.get(1).minX, items.get(1).minY, items.get(1).maxX, items.get(1).maxY)));
+    assertSearchMatches(tree, kept, 28);
+
+    for (Item item : kept) {
+      assertTrue(tree.remove(item));
+    }
+    final List<RTree.Entry> result = new ArrayList<>();
+    tree.search(0, 0, 1, 1, result);
+    assertTrue(result.isEmpty());
+    tree.insert(items.get(0));
+    tree.search(0, 0, 1, 1, result);
+    assertEquals(1, result.size());
+  }
+
+  @Test
+  public void nearestMatchesBruteForce() {
+    final List<Item> items = randomItems(3000, 29);
+    final RTree tree = new RTree();
+    tree.load(items);
+    final Random random = new Random(30);
+    final RTree.Filter evenIds = new RTree.Filter() {
+      @Override
+      public boolean accept(RTree.Entry item) {
+        return ((Item) item).id % 2 == 0;
+      }
+    };
+    for (int q = 0; q < 200; q++) {
+      final double x = random.nextDouble();
+      final double y = random.nextDouble();
+      final int count = 1 + random.nextInt(20);
+      final double maxDistance = q % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 0.05;
+      final RTree.Filter filter = q % 3 == 0 ? evenIds : null;
+
+      final List<Item> candidates = new ArrayList<>();
+      for (Item item : items) {
+        if (RTree.boxDistanceSq(item, x, y) <= maxDistance * maxDistance
+          && (filter == null || filter.accept(item))) {
+          candidates.add(item);
+        }
+      }
+      Collections.sort(candidates, new Comparator<Item>() {
+        @Override
+        public int compare(Item a, Item b) {
+          return Double.compare(RTree.boxDistanceSq(a, x, y), RTree.boxDistanceSq(b, x, y));
+        }
+      });
+
+      final List<RTree.Entry> nearest = tree.nearest(x, y, count, maxDistance, filter);
+      assertEquals(Math.min(count, candidates.size()), nearest.size());
+      for (int i = 0; i < nearest.size(); i++) {
+        // ties may come in either order, so compare distances rather than items
+        assertEquals(RTree.boxDistanceSq(candidates.get(i), x, y), RTree.boxDistanceSq(nearest.get(i), x, y), 0);
+      }
+    }
+  }
+
+  @Test
+  public void nearestUsesTheExactDistanceOfItems() {
+    // a long diagonal box whose box distance is zero but whose line is far away
+    final RTree.Entry diagonal = new RTree.Entry() {
+      @Override
+      double distanceSq(double x, double y) {
+        return AnnotationIndex.segmentDistanceSq(x, y, minX, minY, maxX, maxY);
+      }
+    };
+    diagonal.minX = 0;
+    diagonal.minY = 0;
+    diagonal.maxX = 1;
+    diagonal.maxY = 1;
+    final Item point = new Item(1, 0.75, 0.2, 0.75, 0.2);
+    final RTree tree = new RTree();
+    tree.insert(diagonal);
+    tree.insert(point);
+
+    final List<RTree.Entry> nearest = tree.nearest(0.8, 0.2, 2, Double.POSITIVE_INFINITY, null);
+    assertEquals(2, nearest.size());
+    assertTrue(nearest.get(0) == point);
+    assertTrue(nearest.get(1) == diagonal);
+  }
+
+  @Test
+  public void segmentDistance() {
+    // projects inside the segment
+    assertEquals(1, AnnotationIndex.segmentDistanceSq(1, 1, 0, 0, 2, 0), 1e-12);
+    // clamps to either endpoint
+    assertEquals(2, AnnotationIndex.segmentDistanceSq(-1, 1, 0, 0, 2, 0), 1e-12);
+    assertEquals(5, AnnotationIndex.segmentDistanceSq(4, 1, 0, 0, 2, 0), 1e-12);
+    // degenerate segment
+    assertEquals(25, AnnotationIndex.segmentDistanceSq(3, 4, 0, 0, 0, 0), 1e-12);
+  }
+
+  private static void assertSearchMatches(RTree tree, List<Item> items, long seed) {
+    final Random random = new Random(seed);
+    for (int q = 0; q < 200; q++) {
+      final double minX = random.nextDouble();
+      final double minY = random.nextDouble();
+      final double maxX = minX + random.nextDouble() * 0.2;
+      final double maxY = minY + random.nextDouble() * 0.2;
+      final List<Integer> expected = new ArrayList<>();
+      for (Item item : items) {
+        if (item.minX <= maxX && item.minY <= maxY && item.maxX >= minX && item.maxY >= minY) {
+          expected.add(item.id);
+        }
+      }
+      final List<RTree.Entry> result = new ArrayList<>();
+      tree.search(minX, minY, maxX, maxY, result);
+      final List<Integer> actual = new ArrayList<>(result.size());
+      for (RTree.Entry entry : result) {
+        actual.add(((Item) entry).id);
+      }
+      Collections.sort(actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  private static List<Item> randomItems(int count, long seed) {
+    final Random random = new Random(seed);
+    final List<Item> items = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final double x = random.nextDouble();
+      final double y = random.nextDouble();
+      // a mix of points and small boxes
+      final double width = i % 2 == 0 ? 0 : random.nextDouble() * 0.01;
+      final double height = i % 2 == 0 ? 0 : random.nextDouble() * 0.01;
+      items.add(new Item(i, x, y, x + width, y + height));
+    }
+    return items;
+  }
+}
@@ -2,6 +2,7 @@ library mapbox_plugin;
 
 import 'dart:async';
 import 'dart:math';
+import 'dart:typed_data';
 import 'dart:ui';
 
 import 'package:flutter/foundation.dart';
@@ -9,11 +10,13 @@ import 'package:flutter/gestures.dart';
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 
+part 'src/annotations.dart';
 part 'src/bitmap.dart';
 part 'src/callbacks.dart';
 part 'src/camera.dart';
 
 part 'src/circle.dart';
+part 'src/cluster.dart';
 part 'src/controller.dart';
 
 part 'src/global.dart';
@@ -28,5 +31,6 @@ part 'src/marker.dart';
 part 'src/marker_updates.dart';
 
 part 'src/pattern_item.dart';
+part 'src/query.dart';
 part 'src/symbol.dart';
 part 'src/ui.dart';
@@ -0,0 +1,63 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+part of mapbox_plugin;
+
+/// The annotations created by a single
+/// [MapboxMapController.applyAnnotations] call.
+class AddedAnnotations {
+  const AddedAnnotations(this.symbols, this.lines, this.circles);
+
+  /// The added symbols, in the order of the requested options.
+  final List<Symbol> symbols;
+
+  /// The added lines, in the order of the requested options.
+  final List<Line> lines;
+
+  /// The added circles, in the order of the requested options.
+  final List<Circle> circles;
+}
+
+/// The kind of annotation matched by [MapboxMapController.queryAnnotations]
+/// and [MapboxMapController.nearestAnnotations].
+enum AnnotationType {
+  Symbol,
+  Line,
+  Circle,
+}
+
+String _annotationTypeToJson(AnnotationType type) {
+  switch (type) {
+    case AnnotationType.Symbol:
+      return 'symbol';
+    case AnnotationType.Line:
+      return 'line';
+    case AnnotationType.Circle:
+      return 'circle';
+  }
+  return null;
+}
+
+/// The annotations intersecting the bounds of a
+/// [MapboxMapController.queryAnnotations] call.
+class AnnotationsInBounds {
+  const AnnotationsInBounds(this.symbols, this.lines, this.circles);
+
+  final List<Symbol> symbols;
+
+  final List<Line> lines;
+
+  final List<Circle> circles;
+}
+
+/// An annotation returned by [MapboxMapController.nearestAnnotations].
+class NearbyAnnotation {
+  const NearbyAnnotation(this.annotation, this.distance);
+
+  /// The [Symbol], [Line] or [Circle].
+  final dynamic annotation;
+
+  /// The approximate distance to the queried position, in meters.
+  final double distance;
+}
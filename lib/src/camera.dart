@@ -71,6 +71,20 @@ class CameraPosition {
     );
   }
 
+  /// Decodes the fixed [lat, lng, zoom, bearing, tilt] layout used by the
+  /// platform side for camera events.
+  static CameraPosition _fromPacked(Float64List packed) {
+    if (packed == null) {
+      return null;
+    }
+    return CameraPosition(
+      target: LatLng(packed[0], packed[1]),
+      zoom: packed[2],
+      bearing: packed[3],
+      tilt: packed[4],
+    );
+  }
+
   @override
   bool operator ==(dynamic other) {
     if (identical(this, other)) return true;
@@ -0,0 +1,32 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+part of mapbox_plugin;
+
+/// A direct child of a cluster, as returned by
+/// [MapboxMapController.getClusterChildren].
+class ClusterChild {
+  ClusterChild._(this.isCluster, this.id, this.pointCount, this.position);
+
+  /// True if this child is itself a cluster.
+  final bool isCluster;
+
+  /// The cluster id of a cluster child, or the point id of a point child.
+  final dynamic id;
+
+  /// The number of points in this child, 1 for a point.
+  final int pointCount;
+
+  /// The position of the point, or the weighted center of the cluster.
+  final LatLng position;
+
+  static ClusterChild _fromJson(dynamic json) {
+    return ClusterChild._(
+      json['cluster'],
+      json['id'],
+      json['pointCount'],
+      LatLng(json['latitude'], json['longitude']),
+    );
+  }
+}
@@ -61,6 +61,11 @@ class MapboxMapController extends ChangeNotifier {
 
   final ArgumentCallbacks<Marker> onMarkerTapped = ArgumentCallbacks<Marker>();
 
+  /// Callbacks to receive the render statistics sent periodically once
+  /// enabled with [setRenderStatsInterval], in the form of [getRenderStats].
+  final ArgumentCallbacks<Map<dynamic, dynamic>> onRenderStats =
+      ArgumentCallbacks<Map<dynamic, dynamic>>();
+
   /// Callbacks to receive tap events for info windows on symbols
   final ArgumentCallbacks<Symbol> onInfoWindowTapped =
       ArgumentCallbacks<Symbol>();
@@ -100,8 +105,18 @@ class MapboxMapController extends ChangeNotifier {
 
   final int _id;
 
+  /// Phase timings of the most recent feature query, reported by the platform
+  /// side: `featureCount`, and `queryMicros`, `encodeMicros` and `postMicros`
+  /// for the query on the platform thread, the background encoding and the
+  /// hand-off back to the platform thread.
+  Map<dynamic, dynamic> get lastQueryTimings => _lastQueryTimings;
+  Map<dynamic, dynamic> _lastQueryTimings;
+
   Future<dynamic> _handleMethodCall(MethodCall call) async {
     switch (call.method) {
+      case 'map#onRenderStats':
+        onRenderStats(call.arguments);
+        break;
       case 'infoWindow#onTap':
         final String symbolId = call.arguments['symbol'];
         final Symbol symbol = _symbols[symbolId];
@@ -135,7 +150,7 @@ class MapboxMapController extends ChangeNotifier {
         notifyListeners();
         break;
       case 'camera#onMove':
-        _cameraPosition = CameraPosition.fromMap(call.arguments['position']);
+        _cameraPosition = CameraPosition._fromPacked(call.arguments);
         notifyListeners();
         break;
       case 'camera#onIdle':
@@ -176,13 +191,13 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes after listeners have been notified.
   Future<void> _updateMapOptions(Map<String, dynamic> optionsUpdate) async {
     assert(optionsUpdate != null);
-    final dynamic json = await _channel.invokeMethod(
+    final Float64List packedPosition = await _channel.invokeMethod(
       'map#update',
       <String, dynamic>{
         'options': optionsUpdate,
       },
     );
-    _cameraPosition = CameraPosition.fromMap(json);
+    _cameraPosition = CameraPosition._fromPacked(packedPosition);
     notifyListeners();
   }
 
@@ -206,6 +221,34 @@ class MapboxMapController extends ChangeNotifier {
     });
   }
 
+  /// Registers images with the map style so symbols can reference them by
+  /// name through [SymbolOptions.iconImage].
+  ///
+  /// [images] maps image names to encoded image bytes and [assets] maps image
+  /// names to Flutter asset names. When [sdf] is true the images are added as
+  /// signed distance fields, which can be recolored with `iconColor`.
+  ///
+  /// Images are decoded off the platform thread and kept across style changes.
+  ///
+  /// The returned [Future] completes once the images have been added to the
+  /// style.
+  Future<void> addStyleImages({
+    Map<String, Uint8List> images = const <String, Uint8List>{},
+    Map<String, String> assets = const <String, String>{},
+    bool sdf = false,
+  }) async {
+    final List<Map<String, dynamic>> entries = <Map<String, dynamic>>[];
+    images.forEach((String name, Uint8List bytes) {
+      entries.add(<String, dynamic>{'name': name, 'bytes': bytes, 'sdf': sdf});
+    });
+    assets.forEach((String name, String asset) {
+      entries.add(<String, dynamic>{'name': name, 'asset': asset, 'sdf': sdf});
+    });
+    await _channel.invokeMethod('style#addImages', <String, dynamic>{
+      'images': entries,
+    });
+  }
+
   /// Adds a symbol to the map, configured using the specified custom [options].
   ///
   /// Change listeners are notified once the symbol has been added on the
@@ -228,6 +271,76 @@ class MapboxMapController extends ChangeNotifier {
     return symbol;
   }
 
+  /// Adds multiple symbols to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All symbols are created on the platform side with a single call, which is
+  /// considerably faster than calling [addSymbol] repeatedly.
+  ///
+  /// Change listeners are notified once the symbols have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added symbols, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Symbol>> addSymbols(List<SymbolOptions> options) async {
+    final List<SymbolOptions> effectiveOptions = options
+        .map((SymbolOptions o) => SymbolOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<dynamic> symbolIds = await _channel.invokeMethod(
+      'symbols#addAll',
+      <String, dynamic>{
+        'options': effectiveOptions
+            .map((SymbolOptions o) => o._toJson())
+            .toList(),
+      },
+    );
+    final List<Symbol> symbols = <Symbol>[];
+    for (int i = 0; i < symbolIds.length; i++) {
+      final Symbol symbol = Symbol(symbolIds[i], effectiveOptions[i]);
+      _symbols[symbol._id] = symbol;
+      symbols.add(symbol);
+    }
+    notifyListeners();
+    return symbols;
+  }
+
+  /// Adds multiple virtual symbols to the map, configured using the specified
+  /// custom [options], which must include a geometry.
+  ///
+  /// The platform side keeps the options of virtual symbols and only creates
+  /// those inside the visible bounds plus a margin, updating that set while
+  /// the camera moves and when it becomes idle. This keeps tens of thousands
+  /// of symbols cheap to render. Virtual symbols otherwise behave as regular
+  /// symbols: they can be updated, removed, tapped and queried, and keep
+  /// their identity whether or not they are currently shown.
+  ///
+  /// Change listeners are notified once the symbols have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added symbols, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Symbol>> addVirtualSymbols(List<SymbolOptions> options) async {
+    final List<SymbolOptions> effectiveOptions = options
+        .map((SymbolOptions o) => SymbolOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<dynamic> symbolIds = await _channel.invokeMethod(
+      'symbols#addVirtual',
+      <String, dynamic>{
+        'options': effectiveOptions
+            .map((SymbolOptions o) => o._toJson())
+            .toList(),
+      },
+    );
+    final List<Symbol> symbols = <Symbol>[];
+    for (int i = 0; i < symbolIds.length; i++) {
+      final Symbol symbol = Symbol(symbolIds[i], effectiveOptions[i]);
+      _symbols[symbol._id] = symbol;
+      symbols.add(symbol);
+    }
+    notifyListeners();
+    return symbols;
+  }
+
   /// Updates the specified [symbol] with the given [changes]. The symbol must
   /// be a current member of the [symbols] set.
   ///
@@ -337,6 +450,58 @@ class MapboxMapController extends ChangeNotifier {
     notifyListeners();
   }
 
+  /// Adds multiple lines to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All lines are created on the platform side with a single call.
+  ///
+  /// Change listeners are notified once the lines have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added lines, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Line>> addLines(List<LineOptions> options) async {
+    final List<LineOptions> effectiveOptions = options
+        .map((LineOptions o) => LineOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<dynamic> lineIds = await _channel.invokeMethod(
+      'lines#addAll',
+      <String, dynamic>{
+        'options':
+            effectiveOptions.map((LineOptions o) => o._toJson()).toList(),
+      },
+    );
+    final List<Line> lines = <Line>[];
+    for (int i = 0; i < lineIds.length; i++) {
+      final Line line = Line(lineIds[i], effectiveOptions[i]);
+      _lines[line._id] = line;
+      lines.add(line);
+    }
+    notifyListeners();
+    return lines;
+  }
+
+  /// Updates each of the specified [lines] with the [changes] at the same
+  /// index. The lines must be current members of the [lines] set.
+  ///
+  /// Change listeners are notified once the lines have been updated on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes once listeners have been notified.
+  Future<void> updateLines(List<Line> lines, List<LineOptions> changes) async {
+    assert(lines != null);
+    assert(changes != null);
+    assert(lines.length == changes.length);
+    await _channel.invokeMethod('lines#updateAll', <String, dynamic>{
+      'lines': lines.map((Line line) => line._id).toList(),
+      'options': changes.map((LineOptions o) => o._toJson()).toList(),
+    });
+    for (int i = 0; i < lines.length; i++) {
+      lines[i]._options = lines[i]._options.copyWith(changes[i]);
+    }
+    notifyListeners();
+  }
+
   /// Removes the specified [line] from the map. The line must be a current
   /// member of the [lines] set.
   ///
@@ -419,6 +584,59 @@ class MapboxMapController extends ChangeNotifier {
     notifyListeners();
   }
 
+  /// Adds multiple circles to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All circles are created on the platform side with a single call.
+  ///
+  /// Change listeners are notified once the circles have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added circles, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Circle>> addCircles(List<CircleOptions> options) async {
+    final List<CircleOptions> effectiveOptions = options
+        .map((CircleOptions o) => CircleOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<dynamic> circleIds = await _channel.invokeMethod(
+      'circles#addAll',
+      <String, dynamic>{
+        'options':
+            effectiveOptions.map((CircleOptions o) => o._toJson()).toList(),
+      },
+    );
+    final List<Circle> circles = <Circle>[];
+    for (int i = 0; i < circleIds.length; i++) {
+      final Circle circle = Circle(circleIds[i], effectiveOptions[i]);
+      _circles[circle._id] = circle;
+      circles.add(circle);
+    }
+    notifyListeners();
+    return circles;
+  }
+
+  /// Updates each of the specified [circles] with the [changes] at the same
+  /// index. The circles must be current members of the [circles] set.
+  ///
+  /// Change listeners are notified once the circles have been updated on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes once listeners have been notified.
+  Future<void> updateCircles(
+      List<Circle> circles, List<CircleOptions> changes) async {
+    assert(circles != null);
+    assert(changes != null);
+    assert(circles.length == changes.length);
+    await _channel.invokeMethod('circles#updateAll', <String, dynamic>{
+      'circles': circles.map((Circle circle) => circle._id).toList(),
+      'options': changes.map((CircleOptions o) => o._toJson()).toList(),
+    });
+    for (int i = 0; i < circles.length; i++) {
+      circles[i]._options = circles[i]._options.copyWith(changes[i]);
+    }
+    notifyListeners();
+  }
+
   /// Removes the specified [circle] from the map. The circle must be a current
   /// member of the [circles] set.
   ///
@@ -460,8 +678,346 @@ class MapboxMapController extends ChangeNotifier {
     _circles.remove(id);
   }
 
+  /// Adds, changes and removes symbols, lines and circles in one platform
+  /// call, so the whole scene is updated within a single frame.
+  ///
+  /// The changed and removed annotations must be current members of the
+  /// [symbols], [lines] and [circles] sets.
+  ///
+  /// Change listeners are notified once the changes have been applied on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added annotations once
+  /// listeners have been notified.
+  Future<AddedAnnotations> applyAnnotations({
+    List<SymbolOptions> symbolsToAdd = const <SymbolOptions>[],
+    Map<Symbol, SymbolOptions> symbolsToChange = const <Symbol, SymbolOptions>{},
+    Iterable<Symbol> symbolsToRemove = const <Symbol>[],
+    List<LineOptions> linesToAdd = const <LineOptions>[],
+    Map<Line, LineOptions> linesToChange = const <Line, LineOptions>{},
+    Iterable<Line> linesToRemove = const <Line>[],
+    List<CircleOptions> circlesToAdd = const <CircleOptions>[],
+    Map<Circle, CircleOptions> circlesToChange = const <Circle, CircleOptions>{},
+    Iterable<Circle> circlesToRemove = const <Circle>[],
+  }) async {
+    final List<SymbolOptions> effectiveSymbolOptions = symbolsToAdd
+        .map((SymbolOptions o) => SymbolOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<LineOptions> effectiveLineOptions = linesToAdd
+        .map((LineOptions o) => LineOptions.defaultOptions.copyWith(o))
+        .toList();
+    final List<CircleOptions> effectiveCircleOptions = circlesToAdd
+        .map((CircleOptions o) => CircleOptions.defaultOptions.copyWith(o))
+        .toList();
+    final Map<dynamic, dynamic> reply = await _channel.invokeMethod(
+      'annotations#apply',
+      <String, dynamic>{
+        'symbolsToAdd': effectiveSymbolOptions
+            .map((SymbolOptions o) => o._toJson())
+            .toList(),
+        'symbolsToChange': symbolsToChange.entries
+            .map((MapEntry<Symbol, SymbolOptions> e) => <String, dynamic>{
+                  'symbol': e.key._id,
+                  'options': e.value._toJson(),
+                })
+            .toList(),
+        'symbolIdsToRemove':
+            symbolsToRemove.map((Symbol symbol) => symbol._id).toList(),
+        'linesToAdd':
+            effectiveLineOptions.map((LineOptions o) => o._toJson()).toList(),
+        'linesToChange': linesToChange.entries
+            .map((MapEntry<Line, LineOptions> e) => <String, dynamic>{
+                  'line': e.key._id,
+                  'options': e.value._toJson(),
+                })
+            .toList(),
+        'lineIdsToRemove': linesToRemove.map((Line line) => line._id).toList(),
+        'circlesToAdd': effectiveCircleOptions
+            .map((CircleOptions o) => o._toJson())
+            .toList(),
+        'circlesToChange': circlesToChange.entries
+            .map((MapEntry<Circle, CircleOptions> e) => <String, dynamic>{
+                  'circle': e.key._id,
+                  'options': e.value._toJson(),
+                })
+            .toList(),
+        'circleIdsToRemove':
+            circlesToRemove.map((Circle circle) => circle._id).toList(),
+      },
+    );
+
+    symbolsToRemove.forEach((Symbol symbol) => _symbols.remove(symbol._id));
+    symbolsToChange.forEach((Symbol symbol, SymbolOptions changes) {
+      symbol._options = symbol._options.copyWith(changes);
+    });
+    final List<dynamic> symbolIds = reply['symbols'];
+    final List<Symbol> addedSymbols = <Symbol>[];
+    for (int i = 0; i < symbolIds.length; i++) {
+      final Symbol symbol = Symbol(symbolIds[i], effectiveSymbolOptions[i]);
+      _symbols[symbol._id] = symbol;
+      addedSymbols.add(symbol);
+    }
+
+    linesToRemove.forEach((Line line) => _lines.remove(line._id));
+    linesToChange.forEach((Line line, LineOptions changes) {
+      line._options = line._options.copyWith(changes);
+    });
+    final List<dynamic> lineIds = reply['lines'];
+    final List<Line> addedLines = <Line>[];
+    for (int i = 0; i < lineIds.length; i++) {
+      final Line line = Line(lineIds[i], effectiveLineOptions[i]);
+      _lines[line._id] = line;
+      addedLines.add(line);
+    }
+
+    circlesToRemove.forEach((Circle circle) => _circles.remove(circle._id));
+    circlesToChange.forEach((Circle circle, CircleOptions changes) {
+      circle._options = circle._options.copyWith(changes);
+    });
+    final List<dynamic> circleIds = reply['circles'];
+    final List<Circle> addedCircles = <Circle>[];
+    for (int i = 0; i < circleIds.length; i++) {
+      final Circle circle = Circle(circleIds[i], effectiveCircleOptions[i]);
+      _circles[circle._id] = circle;
+      addedCircles.add(circle);
+    }
+
+    notifyListeners();
+    return AddedAnnotations(addedSymbols, addedLines, addedCircles);
+  }
+
+  /// Adds a GeoJSON source with the given [sourceId] to the map style.
+  ///
+  /// [geojson] is a GeoJSON string, typically a `FeatureCollection`. Features
+  /// of the source are rendered by layers added with [addLayer] and, unlike
+  /// annotations, have no per-feature object on the platform side.
+  ///
+  /// When [featureStore] is true the features are also kept by id on the
+  /// platform side, so single features can be changed with [upsertFeatures]
+  /// and [removeFeatures] without re-sending the whole collection. Every
+  /// feature must then have an id.
+  Future<void> addGeoJsonSource(String sourceId, String geojson,
+      {bool featureStore = false}) async {
+    await _channel.invokeMethod('source#addGeoJson', <String, dynamic>{
+      'sourceId': sourceId,
+      'geojson': geojson,
+      'featureStore': featureStore,
+    });
+  }
+
+  /// Adds the features of the [featureCollection] GeoJSON string to the
+  /// source with the given [sourceId], replacing features with the same id.
+  ///
+  /// The source must have been added with a feature store. Changes made
+  /// during one frame are pushed to the map together.
+  Future<void> upsertFeatures(String sourceId, String featureCollection) async {
+    await _channel.invokeMethod('source#upsertFeatures', <String, dynamic>{
+      'sourceId': sourceId,
+      'features': featureCollection,
+    });
+  }
+
+  /// Removes the features with the given [featureIds] from the source with the
+  /// given [sourceId], which must have been added with a feature store.
+  Future<void> removeFeatures(String sourceId, List<String> featureIds) async {
+    await _channel.invokeMethod('source#removeFeatures', <String, dynamic>{
+      'sourceId': sourceId,
+      'featureIds': featureIds,
+    });
+  }
+
+  /// Replaces the data of the GeoJSON source with the given [sourceId].
+  Future<void> setGeoJsonSource(String sourceId, String geojson) async {
+    await _channel.invokeMethod('source#setGeoJson', <String, dynamic>{
+      'sourceId': sourceId,
+      'geojson': geojson,
+    });
+  }
+
+  /// Removes the source with the given [sourceId] from the map style.
+  Future<void> removeSource(String sourceId) async {
+    await _channel.invokeMethod('source#remove', <String, dynamic>{
+      'sourceId': sourceId,
+    });
+  }
+
+  /// Adds a [type] layer rendering the source with the given [sourceId].
+  ///
+  /// [properties] maps style specification property names, such as
+  /// `circle-radius`, to values. Data-driven values are given as expressions,
+  /// e.g. `['get', 'size']`. Arrays of strings must be wrapped in a `literal`
+  /// expression.
+  ///
+  /// The layer is placed on top unless [belowLayerId] is given.
+  Future<void> addLayer(String layerId, String sourceId, LayerType type,
+      {Map<String, dynamic> properties, String belowLayerId}) async {
+    await _channel.invokeMethod('layer#add', <String, dynamic>{
+      'layerId': layerId,
+      'sourceId': sourceId,
+      'type': _layerTypeToJson(type),
+      'properties': properties,
+      'belowLayerId': belowLayerId,
+    });
+  }
+
+  /// Changes style [properties] of the layer with the given [layerId], see
+  /// [addLayer].
+  Future<void> setLayerProperties(
+      String layerId, Map<String, dynamic> properties) async {
+    await _channel.invokeMethod('layer#setProperties', <String, dynamic>{
+      'layerId': layerId,
+      'properties': properties,
+    });
+  }
+
+  /// Removes the layer with the given [layerId] from the map style.
+  Future<void> removeLayer(String layerId) async {
+    await _channel.invokeMethod('layer#remove', <String, dynamic>{
+      'layerId': layerId,
+    });
+  }
+
+  /// Returns the symbols, lines and circles of this map intersecting the
+  /// given [bounds], optionally only those of the given [types].
+  ///
+  /// The query runs against a native spatial index of the annotations, kept
+  /// up to date as they are added, changed, removed and dragged.
+  Future<AnnotationsInBounds> queryAnnotations(LatLngBounds bounds,
+      {Iterable<AnnotationType> types}) async {
+    final Map<dynamic, dynamic> reply =
+        await _channel.invokeMethod('annotations#queryBox', <String, dynamic>{
+      'bounds': bounds._toList(),
+      'types': _annotationTypesToJson(types),
+    });
+    return AnnotationsInBounds(
+      _annotationsForIds(reply['symbols'], _symbols),
+      _annotationsForIds(reply['lines'], _lines),
+      _annotationsForIds(reply['circles'], _circles),
+    );
+  }
+
+  /// Returns up to [count] symbols, lines and circles of this map nearest to
+  /// [latLng], closest first, optionally only those of the given [types] and
+  /// at most [maxDistance] meters away.
+  ///
+  /// Lines are measured to their nearest segment, symbols and circles to
+  /// their position.
+  Future<List<NearbyAnnotation>> nearestAnnotations(LatLng latLng,
+      {int count = 1,
+      double maxDistance,
+      Iterable<AnnotationType> types}) async {
+    final List<dynamic> reply =
+        await _channel.invokeMethod('annotations#nearest', <String, dynamic>{
+      'latLng': latLng._toJson(),
+      'count': count,
+      'maxDistance': maxDistance,
+      'types': _annotationTypesToJson(types),
+    });
+    final List<NearbyAnnotation> nearby = <NearbyAnnotation>[];
+    for (dynamic data in reply) {
+      final String id = data['id'];
+      final dynamic annotation = data['type'] == 'symbol'
+          ? _symbols[id]
+          : data['type'] == 'line' ? _lines[id] : _circles[id];
+      if (annotation != null) {
+        nearby.add(NearbyAnnotation(annotation, data['distance']));
+      }
+    }
+    return nearby;
+  }
+
+  static List<String> _annotationTypesToJson(Iterable<AnnotationType> types) {
+    return types?.map(_annotationTypeToJson)?.toList();
+  }
+
+  static List<T> _annotationsForIds<T>(
+      List<dynamic> ids, Map<String, T> annotations) {
+    return ids
+        .map((dynamic id) => annotations[id])
+        .where((T annotation) => annotation != null)
+        .toList();
+  }
+
+  /// Clusters the given [points] natively into the GeoJSON source with the
+  /// given [sourceId], adding the source when missing.
+  ///
+  /// Clusters are precomputed for every integer zoom from [minZoom] to
+  /// [maxZoom] once, off the platform thread; whenever the camera becomes idle
+  /// only the clusters and points around the viewport are pushed to the
+  /// source. Cluster features have the properties `cluster`, `cluster_id`,
+  /// `point_count` and `point_count_abbreviated`. Point features have the id
+  /// at the same position in [ids] and the properties at the same position in
+  /// [properties]. Style the source with [addLayer].
+  ///
+  /// Calling this again for the same [sourceId] replaces its points.
+  /// The returned [Future] completes once the new clusters are shown.
+  Future<void> setClusterPoints(String sourceId, List<LatLng> points,
+      {List<String> ids,
+      List<Map<String, dynamic>> properties,
+      double radius = 40,
+      int minZoom = 0,
+      int maxZoom = 16}) async {
+    await _channel.invokeMethod('cluster#setPoints', <String, dynamic>{
+      'sourceId': sourceId,
+      'points': _latLngsToPacked(points),
+      'ids': ids,
+      'properties': properties,
+      'radius': radius,
+      'minZoom': minZoom,
+      'maxZoom': maxZoom,
+    });
+  }
+
+  /// Removes the cluster source with the given [sourceId] from the map style.
+  Future<void> removeClusterSource(String sourceId) async {
+    await _channel.invokeMethod('cluster#remove', <String, dynamic>{
+      'sourceId': sourceId,
+    });
+  }
+
+  /// Returns the direct children of the cluster with the given [clusterId].
+  Future<List<ClusterChild>> getClusterChildren(
+      String sourceId, int clusterId) async {
+    final List<dynamic> children =
+        await _channel.invokeMethod('cluster#getChildren', <String, dynamic>{
+      'sourceId': sourceId,
+      'clusterId': clusterId,
+    });
+    return children.map<ClusterChild>(ClusterChild._fromJson).toList();
+  }
+
+  /// Returns the ids of the points in the cluster with the given [clusterId],
+  /// paginated by [limit] and [offset].
+  Future<List<String>> getClusterLeaves(String sourceId, int clusterId,
+      {int limit = 10, int offset = 0}) async {
+    final List<dynamic> leaves =
+        await _channel.invokeMethod('cluster#getLeaves', <String, dynamic>{
+      'sourceId': sourceId,
+      'clusterId': clusterId,
+      'limit': limit,
+      'offset': offset,
+    });
+    return leaves.cast<String>();
+  }
+
+  /// Returns the zoom at which the cluster with the given [clusterId] splits
+  /// into several children.
+  Future<int> getClusterExpansionZoom(String sourceId, int clusterId) async {
+    return await _channel
+        .invokeMethod('cluster#getExpansionZoom', <String, dynamic>{
+      'sourceId': sourceId,
+      'clusterId': clusterId,
+    });
+  }
+
+  /// Returns the features rendered at [point] in the given [layerIds],
+  /// filtered by the [filter] expression.
+  ///
+  /// By default every feature is returned as a GeoJSON string. Passing a
+  /// [projection] returns a compact result instead, see [FeatureProjection].
   Future<List> queryRenderedFeatures(
-      Point<double> point, List<String> layerIds, String filter) async {
+      Point<double> point, List<String> layerIds, String filter,
+      {FeatureProjection projection}) async {
     try {
       final Map<Object, Object> reply = await _channel.invokeMethod(
         'map#queryRenderedFeatures',
@@ -470,16 +1026,24 @@ class MapboxMapController extends ChangeNotifier {
           'y': point.y,
           'layerIds': layerIds,
           'filter': filter,
+          'projection': projection?._toJson(),
         },
       );
+      _lastQueryTimings = reply['timings'];
       return reply['features'];
     } on PlatformException catch (e) {
       return new Future.error(e);
     }
   }
 
+  /// Returns the features rendered inside [rect] in the given [layerIds],
+  /// filtered by the [filter] expression.
+  ///
+  /// By default every feature is returned as a GeoJSON string. Passing a
+  /// [projection] returns a compact result instead, see [FeatureProjection].
   Future<List> queryRenderedFeaturesInRect(
-      Rect rect, List<String> layerIds, String filter) async {
+      Rect rect, List<String> layerIds, String filter,
+      {FeatureProjection projection}) async {
     try {
       final Map<Object, Object> reply = await _channel.invokeMethod(
         'map#queryRenderedFeatures',
@@ -490,11 +1054,68 @@ class MapboxMapController extends ChangeNotifier {
           'bottom': rect.bottom,
           'layerIds': layerIds,
           'filter': filter,
+          'projection': projection?._toJson(),
         },
       );
+      _lastQueryTimings = reply['timings'];
       return reply['features'];
     } on PlatformException catch (e) {
       return new Future.error(e);
     }
   }
+
+  /// Returns the statistics of the platform calls of this map since it was
+  /// created or the metrics were last reset, and resets them when [reset] is
+  /// true.
+  ///
+  /// The `calls` entry maps each method name, such as `symbol#add`, to its
+  /// `count`, `errors`, `p50`, `p95`, `p99` and `max` latencies in
+  /// milliseconds from the call to its reply, and the total and largest
+  /// approximate encoded size of its arguments as `argumentBytes` and
+  /// `maxArgumentBytes`. The size estimate only looks at the top level of the
+  /// arguments and assumes 9 bytes per entry of nested lists and maps. The
+  /// `events` entry maps each event sent by the platform, such as
+  /// `camera#onMove`, to its count, and `durationMillis` is the time covered.
+  Future<Map<dynamic, dynamic>> getMetrics({bool reset = false}) async {
+    return await _channel.invokeMethod(
+      'map#getMetrics',
+      <String, dynamic>{'reset': reset},
+    );
+  }
+
+  /// Clears the statistics returned by [getMetrics].
+  Future<void> resetMetrics() async {
+    await _channel.invokeMethod('map#resetMetrics');
+  }
+
+  /// Returns the frame statistics of the map view, and resets the frame
+  /// counters and recent frames when [reset] is true.
+  ///
+  /// `frameCount`, `slowFrameCount` and `partialFrameCount` count the
+  /// frames rendered, those rendered slower than the display refresh interval
+  /// `frameBudget`, and those rendered while the map was still loading. A slow
+  /// frame was likely, but not necessarily, dropped by the display.
+  /// `mapLoaded` and `firstFullRender` are the milliseconds from the moment
+  /// the map got its view to its load and to its first complete render, or
+  /// null until then. When `pooledView` is true the view came from the pool
+  /// configured with [configureMapViewPool], and `mapLoaded` is close to zero
+  /// if the pooled view had loaded the style already. For the last
+  /// `windowFrameCount` frames, `histogram` counts the frames by duration,
+  /// split at the `histogramEdges` milliseconds, and `p50`, `p90`, `p99` and
+  /// `max` are their durations in milliseconds.
+  Future<Map<dynamic, dynamic>> getRenderStats({bool reset = false}) async {
+    return await _channel.invokeMethod(
+      'map#getRenderStats',
+      <String, dynamic>{'reset': reset},
+    );
+  }
+
+  /// Sends the statistics of [getRenderStats] to [onRenderStats] every
+  /// [interval], no more often than every 250 ms; a null interval stops them.
+  Future<void> setRenderStatsInterval(Duration interval) async {
+    await _channel.invokeMethod(
+      'map#setRenderStatsInterval',
+      <String, dynamic>{'intervalMillis': interval?.inMilliseconds ?? 0},
+    );
+  }
 }
@@ -7,13 +7,212 @@ part of mapbox_plugin;
 final MethodChannel _globalChannel =
     MethodChannel('plugins.flutter.io/mapbox_plugin');
 
+/// Callback reporting the progress of [installOfflineMapTiles].
+///
+/// [totalBytes] is -1 while the size of the database is not known.
+typedef void OfflineInstallProgressCallback(int bytesCopied, int totalBytes);
+
+final Map<String, OfflineInstallProgressCallback> _installProgressCallbacks =
+    <String, OfflineInstallProgressCallback>{};
+
+Future<dynamic> _handleGlobalMethodCall(MethodCall call) async {
+  switch (call.method) {
+    case 'installOfflineMapTiles#onProgress':
+      final OfflineInstallProgressCallback onProgress =
+          _installProgressCallbacks[call.arguments['tilesdb']];
+      if (onProgress != null) {
+        onProgress(call.arguments['bytesCopied'], call.arguments['totalBytes']);
+      }
+      break;
+    default:
+      throw MissingPluginException();
+  }
+}
+
 /// Copy tiles db file passed in to the tiles cache directory (sideloaded) to
 /// make tiles available offline.
-Future<void> installOfflineMapTiles(String tilesDb) async {
+///
+/// The copy is skipped when the same [tilesDb] is already installed, unless
+/// [force] is true. Without a [version], a database is considered current
+/// until the app is updated; pass a [version] to tie it to the asset contents
+/// instead. The new database replaces the old one only once fully copied.
+///
+/// The copy runs on a platform worker thread; [onProgress] is called as it
+/// advances. The returned [Future] completes with true if the database was
+/// copied and false if it was current, or with a [PlatformException] if the
+/// copy failed.
+Future<bool> installOfflineMapTiles(String tilesDb,
+    {String version,
+    bool force = false,
+    OfflineInstallProgressCallback onProgress}) async {
+  if (onProgress != null) {
+    _globalChannel.setMethodCallHandler(_handleGlobalMethodCall);
+    _installProgressCallbacks[tilesDb] = onProgress;
+  }
+  try {
+    return await _globalChannel.invokeMethod(
+      'installOfflineMapTiles',
+      <String, dynamic>{
+        'tilesdb': tilesDb,
+        'version': version,
+        'force': force,
+        'reportProgress': onProgress != null,
+      },
+    );
+  } finally {
+    if (onProgress != null) {
+      _installProgressCallbacks.remove(tilesDb);
+    }
+  }
+}
+
+/// An offline region merged by [mergeOfflineMapTiles].
+class MergedOfflineRegion {
+  MergedOfflineRegion._(this.id, this.metadata);
+
+  final int id;
+
+  /// The metadata stored with the region when it was created.
+  final Uint8List metadata;
+}
+
+/// The outcome of [mergeOfflineMapTiles].
+class OfflineMergeResult {
+  OfflineMergeResult._(this.regions, this.extractTime, this.mergeTime);
+
+  /// The regions merged into the offline database, or null if the same tiles
+  /// database had already been merged.
+  final List<MergedOfflineRegion> regions;
+
+  /// The time spent extracting the tiles database from the app assets.
+  final Duration extractTime;
+
+  /// The time spent merging the regions into the offline database.
+  final Duration mergeTime;
+}
+
+/// Merges the offline regions of the tiles db file passed in into the tiles
+/// cache, keeping the tiles already cached there.
+///
+/// Unlike [installOfflineMapTiles], which replaces the tiles cache, this
+/// keeps the ambient cache built while browsing the map. The merge is skipped
+/// when the same [tilesDb] and [version] were merged before, unless [force]
+/// is true; see [installOfflineMapTiles] for how versions are compared.
+///
+/// The database is extracted on a platform worker thread, during which
+/// [onProgress] is called, then merged by the SDK in the background.
+Future<OfflineMergeResult> mergeOfflineMapTiles(String tilesDb,
+    {String version,
+    bool force = false,
+    OfflineInstallProgressCallback onProgress}) async {
+  if (onProgress != null) {
+    _globalChannel.setMethodCallHandler(_handleGlobalMethodCall);
+    _installProgressCallbacks[tilesDb] = onProgress;
+  }
+  try {
+    final Map<dynamic, dynamic> reply = await _globalChannel.invokeMethod(
+      'mergeOfflineMapTiles',
+      <String, dynamic>{
+        'tilesdb': tilesDb,
+        'version': version,
+        'force': force,
+        'reportProgress': onProgress != null,
+      },
+    );
+    final List<dynamic> regions = reply['regions'];
+    return OfflineMergeResult._(
+      regions
+          ?.map((dynamic region) =>
+              MergedOfflineRegion._(region['id'], region['metadata']))
+          ?.toList(),
+      Duration(milliseconds: reply['extractMillis']),
+      Duration(milliseconds: reply['mergeMillis']),
+    );
+  } finally {
+    if (onProgress != null) {
+      _installProgressCallbacks.remove(tilesDb);
+    }
+  }
+}
+
+/// Sets the byte budget of the process-wide cache of decoded marker icons.
+///
+/// The cache is emptied and its counters are reset.
+Future<void> setIconCacheMaxBytes(int maxBytes) async {
+  await _globalChannel.invokeMethod(
+    'iconCache#setMaxBytes',
+    <String, dynamic>{
+      'maxBytes': maxBytes,
+    },
+  );
+}
+
+/// Removes all icons from the marker icon cache.
+Future<void> clearIconCache() async {
+  await _globalChannel.invokeMethod('iconCache#clear');
+}
+
+/// Returns the hit, miss and eviction counts of the marker icon cache together
+/// with its entry count, current size and byte budget.
+Future<Map<dynamic, dynamic>> getIconCacheStats() async {
+  return await _globalChannel.invokeMethod('iconCache#getStats');
+}
+
+/// Returns the style string of a map using the style registered under [key]
+/// with [registerStyle] or [preloadStyle].
+String registeredStyle(String key) => 'registered://$key';
+
+/// Registers a style under [key], given either as [styleJson] or as the
+/// Flutter [asset] holding it.
+///
+/// The style is stored in a disk cache named by its digest, so maps using
+/// [registeredStyle] have the style read from that cache instead of receiving
+/// the whole JSON on every open. Registering the same JSON again only updates
+/// the key. The returned [Future] completes with the digest of the style.
+Future<String> registerStyle(String key,
+    {String styleJson, String asset}) async {
+  assert((styleJson == null) != (asset == null));
+  return await _globalChannel.invokeMethod(
+    'style#register',
+    <String, dynamic>{
+      'key': key,
+      'json': styleJson,
+      'asset': asset,
+    },
+  );
+}
+
+/// Makes the style registered under [key] in an earlier run of the app
+/// available to [registeredStyle], without sending it again.
+///
+/// The returned [Future] completes with the digest of the cached style, or
+/// with null when the disk cache has no style for [key], in which case it
+/// needs [registerStyle].
+Future<String> preloadStyle(String key) async {
+  return await _globalChannel.invokeMethod(
+    'style#preload',
+    <String, dynamic>{
+      'key': key,
+    },
+  );
+}
+
+/// Keeps [size] map views ready for new [MapboxMap] widgets.
+///
+/// The views are created while the app is idle and start loading
+/// [styleString], so a map using the same style opens without waiting for the
+/// view setup, and for the style once the view has been shown. Disposed maps
+/// return their views to the pool. Pass a [size] of 0 to drop the pool.
+///
+/// Only the style given here is pre-loaded; the other options of a map are
+/// applied when it takes a view from the pool.
+Future<void> configureMapViewPool(
+    {int size = 1, String styleString = MapboxStyles.MAPBOX_STREETS}) async {
   await _globalChannel.invokeMethod(
-    'installOfflineMapTiles',
+    'mapViewPool#configure',
     <String, dynamic>{
-      'tilesdb': tilesDb,
+      'size': size,
+      'styleString': styleString,
     },
   );
 }
@@ -27,6 +27,20 @@ class Line {
   LineOptions get options => _options;
 }
 
+/// Packs [latLngs] as interleaved latitude/longitude pairs, which the platform
+/// side decodes without a list and boxed doubles per vertex.
+Float64List _latLngsToPacked(List<LatLng> latLngs) {
+  if (latLngs == null) {
+    return null;
+  }
+  final Float64List packed = Float64List(latLngs.length * 2);
+  for (int i = 0; i < latLngs.length; i++) {
+    packed[2 * i] = latLngs[i].latitude;
+    packed[2 * i + 1] = latLngs[i].longitude;
+  }
+  return packed;
+}
+
 /// Configuration options for [Line] instances.
 ///
 /// When used to change configuration, null values will be interpreted as
@@ -47,6 +61,7 @@ class LineOptions {
     this.linePattern,
     this.geometry,
     this.draggable,
+    this.simplify,
   });
 
   final String lineJoin;
@@ -60,6 +75,12 @@ class LineOptions {
   final List<LatLng> geometry;
   final bool draggable;
 
+  /// Whether the line is rendered with a level of detail matching the camera
+  /// zoom rather than with every vertex of its [geometry].
+  ///
+  /// Meant for long recorded tracks; simplified lines should not be dragged.
+  final bool simplify;
+
   static const LineOptions defaultOptions = LineOptions();
 
   LineOptions copyWith(LineOptions changes) {
@@ -77,6 +98,7 @@ class LineOptions {
       linePattern: changes.linePattern ?? linePattern,
       geometry: changes.geometry ?? geometry,
       draggable: changes.draggable ?? draggable,
+      simplify: changes.simplify ?? simplify,
     );
   }
 
@@ -97,9 +119,9 @@ class LineOptions {
     addIfPresent('lineOffset', lineOffset);
     addIfPresent('lineBlur', lineBlur);
     addIfPresent('linePattern', linePattern);
-    addIfPresent('geometry',
-        geometry?.map((LatLng latLng) => latLng._toJson())?.toList());
+    addIfPresent('geometry', _latLngsToPacked(geometry));
     addIfPresent('draggable', draggable);
+    addIfPresent('simplify', simplify);
     return json;
   }
 }
@@ -21,10 +21,12 @@ class MapboxMap extends StatefulWidget {
     this.zoomGesturesEnabled = true,
     this.tiltGesturesEnabled = true,
     this.trackCameraPosition = false,
+    this.cameraMoveEventRate = CameraMoveEventRate.unlimited,
     this.myLocationEnabled = false,
     this.myLocationTrackingMode = MyLocationTrackingMode.Tracking,
     this.onMapClick,
     this.onCameraTrackingDismissed,
+    this.annotationTypes,
   }) : assert(initialCameraPosition != null);
 
   final MapCreatedCallback onMapCreated;
@@ -40,7 +42,8 @@ class MapboxMap extends StatefulWidget {
 
   /// Style URL or Style JSON
   /// Can be a MapboxStyle constant, any Mapbox Style URL,
-  /// or a StyleJSON (https://docs.mapbox.com/mapbox-gl-js/style-spec/)
+  /// or a StyleJSON (https://docs.mapbox.com/mapbox-gl-js/style-spec/),
+  /// or the [registeredStyle] of a key
   final String styleString;
 
   /// Preferred bounds for the camera zoom level.
@@ -63,6 +66,10 @@ class MapboxMap extends StatefulWidget {
   /// True if the map view should relay camera move events to Flutter.
   final bool trackCameraPosition;
 
+  /// Maximum rate of the camera move events relayed while
+  /// [trackCameraPosition] is true.
+  final CameraMoveEventRate cameraMoveEventRate;
+
   final Set<Marker> markers;
 
   /// True if a "My Location" layer should be shown on the map.
@@ -109,6 +116,14 @@ class MapboxMap extends StatefulWidget {
   /// Called when the location tracking mode changes, such as when the user moves the map
   final OnCameraTrackingDismissedCallback onCameraTrackingDismissed;
 
+  /// The annotation types whose layers are added as soon as the style loads.
+  ///
+  /// The layer of any other annotation type is added by the first addition of
+  /// an annotation of that type. Whatever the order they are added in, line
+  /// layers stay below symbol layers, and symbol layers below circle layers.
+  /// Only read when the map is created.
+  final List<AnnotationType> annotationTypes;
+
   @override
   State createState() => _MapboxMapState();
 }
@@ -127,6 +142,8 @@ class _MapboxMapState extends State<MapboxMap> {
       'initialCameraPosition': widget.initialCameraPosition?._toMap(),
       'options': _MapboxMapOptions.fromWidget(widget).toMap(),
       'markersToAdd': _serializeMarkerSet(widget.markers),
+      'annotationTypes':
+          widget.annotationTypes?.map(_annotationTypeToJson)?.toList(),
     };
     if (defaultTargetPlatform == TargetPlatform.android) {
       return AndroidView(
@@ -225,6 +242,7 @@ class _MapboxMapOptions {
     this.scrollGesturesEnabled,
     this.tiltGesturesEnabled,
     this.trackCameraPosition,
+    this.cameraMoveEventRate,
     this.zoomGesturesEnabled,
     this.myLocationEnabled,
     this.myLocationTrackingMode,
@@ -240,6 +258,7 @@ class _MapboxMapOptions {
       scrollGesturesEnabled: map.scrollGesturesEnabled,
       tiltGesturesEnabled: map.tiltGesturesEnabled,
       trackCameraPosition: map.trackCameraPosition,
+      cameraMoveEventRate: map.cameraMoveEventRate,
       zoomGesturesEnabled: map.zoomGesturesEnabled,
       myLocationEnabled: map.myLocationEnabled,
       myLocationTrackingMode: map.myLocationTrackingMode,
@@ -262,6 +281,8 @@ class _MapboxMapOptions {
 
   final bool trackCameraPosition;
 
+  final CameraMoveEventRate cameraMoveEventRate;
+
   final bool zoomGesturesEnabled;
 
   final bool myLocationEnabled;
@@ -286,6 +307,7 @@ class _MapboxMapOptions {
     addIfNonNull('tiltGesturesEnabled', tiltGesturesEnabled);
     addIfNonNull('zoomGesturesEnabled', zoomGesturesEnabled);
     addIfNonNull('trackCameraPosition', trackCameraPosition);
+    addIfNonNull('cameraMoveEventRate', cameraMoveEventRate?._toJson());
     addIfNonNull('myLocationEnabled', myLocationEnabled);
     addIfNonNull('myLocationTrackingMode', myLocationTrackingMode?.index);
     return optionsMap;
@@ -0,0 +1,31 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+part of mapbox_plugin;
+
+/// Selects what [MapboxMapController.queryRenderedFeatures] returns for each
+/// feature, to keep large query results small.
+class FeatureProjection {
+  /// Creates a projection returning, per feature, a map with its `id`, the
+  /// `properties` listed in [propertyKeys] (all when null) and, when
+  /// [includeGeometry] is true, its `geometry` as a GeoJSON string.
+  const FeatureProjection({this.propertyKeys, this.includeGeometry = true})
+      : idsOnly = false;
+
+  /// Creates a projection returning only the id of each feature.
+  const FeatureProjection.idsOnly()
+      : idsOnly = true,
+        propertyKeys = null,
+        includeGeometry = false;
+
+  final bool idsOnly;
+  final List<String> propertyKeys;
+  final bool includeGeometry;
+
+  dynamic _toJson() => <String, dynamic>{
+        'idsOnly': idsOnly,
+        'propertyKeys': propertyKeys,
+        'includeGeometry': includeGeometry,
+      };
+}
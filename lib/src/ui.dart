@@ -52,6 +52,25 @@ enum MyLocationTrackingMode {
   TrackingGPS,
 }
 
+/// The kind of layer added by [MapboxMapController.addLayer].
+enum LayerType {
+  Symbol,
+  Circle,
+  Line,
+}
+
+String _layerTypeToJson(LayerType type) {
+  switch (type) {
+    case LayerType.Symbol:
+      return 'symbol';
+    case LayerType.Circle:
+      return 'circle';
+    case LayerType.Line:
+      return 'line';
+  }
+  return null;
+}
+
 /// Bounds for the map camera target.
 // Used with [MapboxMapOptions] to wrap a [LatLngBounds] value. This allows
 // distinguishing between specifying an unbounded target (null `LatLngBounds`)
@@ -124,3 +143,43 @@ class MinMaxZoomPreference {
     return 'MinMaxZoomPreference(minZoom: $minZoom, maxZoom: $maxZoom)';
   }
 }
+
+/// Maximum rate of camera move events relayed to Flutter while
+/// [MapboxMap.trackCameraPosition] is enabled.
+///
+/// Moves happening between two events are coalesced, so the next event always
+/// carries the latest camera position.
+class CameraMoveEventRate {
+  /// Relays at most [eventsPerSecond] camera move events per second.
+  const CameraMoveEventRate.perSecond(int eventsPerSecond)
+      : assert(eventsPerSecond != null && eventsPerSecond > 0),
+        _rate = eventsPerSecond;
+
+  const CameraMoveEventRate._(this._rate);
+
+  final int _rate;
+
+  /// Relays every camera move reported by the platform.
+  static const CameraMoveEventRate unlimited = CameraMoveEventRate._(0);
+
+  /// Only relays the final camera position once the camera becomes idle.
+  static const CameraMoveEventRate onlyOnIdle = CameraMoveEventRate._(-1);
+
+  dynamic _toJson() => _rate;
+
+  @override
+  bool operator ==(dynamic other) {
+    if (identical(this, other)) return true;
+    if (runtimeType != other.runtimeType) return false;
+    final CameraMoveEventRate typedOther = other;
+    return _rate == typedOther._rate;
+  }
+
+  @override
+  int get hashCode => _rate.hashCode;
+
+  @override
+  String toString() {
+    return 'CameraMoveEventRate($_rate)';
+  }
+}